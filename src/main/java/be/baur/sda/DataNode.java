@@ -1,5 +1,8 @@
 package be.baur.sda;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 
 import be.baur.sda.io.SDAFormatter;
@@ -14,7 +17,8 @@ import be.baur.sda.io.SDAFormatter;
 public class DataNode extends AbstractNode {
 
 	private String name;  // the name tag, never null or empty
-	private String value; // a value, never null, may be empty
+	private CharSequence value; // a value, never null, may be empty or deferred
+	private int offset; // the position of this node in its source, 0 if unknown
 
 
 	/**
@@ -45,6 +49,22 @@ public class DataNode extends AbstractNode {
 		setName(name); setValue(value);
 	}
 
+	
+	/**
+	 * Creates a node with the specified name and a deferred value. This method
+	 * will treat a null value as if an empty string was supplied.
+	 * 
+	 * @param name a node name
+	 * @param value a character sequence, may be null
+	 * @throws IllegalArgumentException if the name is invalid
+	 * @see #setName
+	 * @see #setValue(CharSequence)
+	 */
+	public DataNode(String name, CharSequence value) {
+		//super(); 
+		setName(name); setValue(value);
+	}
+
 
 	/**
 	 * Sets the name (tag) of this node. There are restrictions as to what names are
@@ -84,6 +104,22 @@ public class DataNode extends AbstractNode {
 	}
 	
 	
+	/**
+	 * Sets a deferred value for this node. The character sequence is turned into a
+	 * string when the value is first requested, which allows a parser to postpone
+	 * the cost of decoding a value until it is actually used. The sequence should
+	 * not be modified afterwards. A null value is turned into an empty string.
+	 * 
+	 * @param value a character sequence, may be null or empty
+	 * @see #getValue
+	 */
+	public final void setValue(CharSequence value) {
+		if (value == null || value instanceof String) 
+			setValue((String) value);
+		else this.value = value;
+	}
+	
+	
 	/**
 	 * Returns the value of this node. This method returns an empty string if no
 	 * value has been set.
@@ -91,10 +127,38 @@ public class DataNode extends AbstractNode {
 	 * @return the string value, not null, may be empty
 	 */
 	public final String getValue() {
-		return value;
+		final CharSequence v = value;
+		if (v instanceof String) return (String) v;
+		final String s = v.toString(); // resolve a deferred value once
+		value = s; return s;
 	}
 	
 	
+	/**
+	 * Sets the position of this node in the input it was parsed from. This is the
+	 * number of characters read up to and including the first character of the
+	 * node, like the error offset of a parse exception.
+	 * 
+	 * @param offset a position, or 0 if unknown
+	 * @see #getSourceOffset
+	 */
+	public final void setSourceOffset(int offset) {
+		this.offset = offset < 0 ? 0 : offset;
+	}
+	
+	
+	/**
+	 * Returns the position of this node in the input it was parsed from. This is
+	 * only set if the parser was asked to do so.
+	 * 
+	 * @return a position, or 0 if unknown
+	 * @see be.baur.sda.io.SDAParser#setSourceOffsets
+	 */
+	public final int getSourceOffset() {
+		return offset;
+	}
+
+
 	/**
 	 * Returns true if this node has no child list. This method returns false for a
 	 * parent node <i>and</i> for a "vacant parent" with an empty child list (as in
@@ -142,21 +206,45 @@ public class DataNode extends AbstractNode {
 	@Override
 	public String toString() {
 
-		final List<AbstractNode> nodes = getNodeList();
-		final StringBuilder sb = new StringBuilder(name);
-		
-		if (! value.isEmpty() || nodes == null) 
-			sb.append(" ").append((char) SDA.QUOTE)
-				.append(SDA.encode(value)).append((char) SDA.QUOTE);
+		final StringBuilder sb = new StringBuilder(64);
+		append(sb, this);
+		if (getNodeList() == null) return sb.toString();
+
+		// append all descendants to the same buffer, without recursion
+		final Deque<Iterator<AbstractNode>> stack = new ArrayDeque<>();
+		stack.push(getNodeList().iterator());
+		while (! stack.isEmpty()) {
+			final Iterator<AbstractNode> i = stack.peek();
+			if (! i.hasNext()) {
+				sb.append((char) SDA.RBRACE); stack.pop();
+				if (! stack.isEmpty()) sb.append(' ');
+				continue;
+			}
+			final DataNode node = (DataNode) i.next();
+			append(sb, node);
+			if (node.getNodeList() != null) stack.push(node.getNodeList().iterator());
+			else sb.append(' ');
+		}
+		return sb.toString();
+	}
 
-		if (nodes != null) {
-			sb.append(" ").append((char)SDA.LBRACE).append(" ");
-			for (Node node : nodes) 
-				sb.append(node.toString()).append(" ");
-			sb.append((char)SDA.RBRACE);
+
+	/*
+	 * Private helper to append a node without its children, which is followed by
+	 * a left brace (and a space) if it has a child list.
+	 */
+	private static void append(StringBuilder sb, DataNode node) {
+
+		final List<AbstractNode> nodes = node.getNodeList();
+		sb.append(node.name);
+
+		final String value = node.getValue();
+		if (! value.isEmpty() || nodes == null) {
+			sb.append(' ').append((char) SDA.QUOTE)
+				.append(SDA.encode(value)).append((char) SDA.QUOTE);
 		}
 
-		return sb.toString();
+		if (nodes != null) sb.append(' ').append((char) SDA.LBRACE).append(' ');
 	}
 
 }
\ No newline at end of file
@@ -4,11 +4,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Executor;
 
 import be.baur.sda.io.ParseException;
+import be.baur.sda.io.SDADocumentReader;
 import be.baur.sda.io.SDAFormatter;
 import be.baur.sda.io.SDAParseException;
 import be.baur.sda.io.SDAParser;
+import be.baur.sda.io.SDARecordReader;
+import be.baur.sda.util.Results;
 
 /**
  * This class defines static constants and utility methods.
@@ -150,9 +156,6 @@ public final class SDA {
 */
 
 
-	private static final String bslash = "" + (char)SDA.BSLASH;
-	private static final String quote = "" + (char)SDA.QUOTE;
-
 	/**
 	 * Encode a string as an SDA value. This method formats its argument as an SDA
 	 * value, with backslashes and quotes properly escaped.
@@ -161,7 +164,21 @@ public final class SDA {
 	 * @return the encoded string, like 'The \\ is called a \"backslash\" in English.'
 	 */
 	public static String encode(String value) {
-		return value.replace(bslash, bslash + bslash).replace(quote, bslash + quote);
+		
+		final int length = value.length(); int i = 0;
+		while (i < length) { // find the first character to escape, if any
+			final char c = value.charAt(i);
+			if (c == QUOTE || c == BSLASH) break; ++i;
+		}
+		if (i == length) return value;
+		
+		final StringBuilder sb = new StringBuilder(length + 8).append(value, 0, i);
+		for (; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c == QUOTE || c == BSLASH) sb.append((char) BSLASH);
+			sb.append(c);
+		}
+		return sb.toString();
 	}
 	
 	
@@ -206,6 +223,64 @@ public final class SDA {
 	}
 	
 
+	/**
+	 * Creates data nodes from a collection of files, using the default SDA parser.
+	 * The files are read and parsed concurrently on the specified executor.
+	 * 
+	 * @param paths    a collection of paths to input files
+	 * @param executor an executor
+	 * @return results, one for each path
+	 * @throws InterruptedException if the current thread was interrupted
+	 * @see SDAParser#parseAll(Collection, Executor)
+	 */
+	public static Results<DataNode> parseAll(Collection<Path> paths, Executor executor) throws InterruptedException {
+		return PARSER.parseAll(paths, executor);
+	}
+	
+	
+	/**
+	 * Creates data nodes from a collection of files, using the default SDA parser.
+	 * The files are read and parsed concurrently, on virtual threads if available.
+	 * 
+	 * @param paths a collection of paths to input files
+	 * @return results, one for each path
+	 * @throws InterruptedException if the current thread was interrupted
+	 * @see SDAParser#parseAll(Collection)
+	 */
+	public static Results<DataNode> parseAll(Collection<Path> paths) throws InterruptedException {
+		return PARSER.parseAll(paths);
+	}
+	
+
+	/**
+	 * Returns a record reader for a character stream, using the default SDA
+	 * parser. The record reader returns the child nodes of the root node one at a
+	 * time, so a large input can be processed without building the root node.
+	 * 
+	 * @param input an input stream
+	 * @return a record reader
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 * @see SDAParser#records(Reader)
+	 */
+	public static SDARecordReader records(Reader input) throws IOException, SDAParseException {
+		return PARSER.records(input);
+	}
+	
+
+	/**
+	 * Returns a document reader for a character stream that holds a sequence of
+	 * documents, using the default SDA parser.
+	 * 
+	 * @param input an input stream
+	 * @return a document reader
+	 * @see SDAParser#documents(Reader)
+	 */
+	public static SDADocumentReader documents(Reader input) {
+		return PARSER.documents(input);
+	}
+	
+
 	private static SDAFormatter FORMATTER = new SDAFormatter();  // singleton formatter
 	
 	/**
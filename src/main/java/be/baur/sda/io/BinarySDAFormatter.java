@@ -0,0 +1,248 @@
+package be.baur.sda.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import be.baur.sda.DataNode;
+
+/**
+ * The binary SDA formatter, which renders a {@code DataNode} and any child
+ * nodes in a compact binary encoding, for caches and transport between
+ * services rather than for human readers. The encoding is:
+ *
+ * <pre>
+ * message = magic length node
+ * magic = 'S' 'D' 'A' 0x01
+ * node = header name? value? count?
+ * header = varint (name_index &lt;&lt; 2 | has_children &lt;&lt; 1 | has_value)
+ * name = varint(length) ascii_byte*
+ * value = varint(length) utf8_byte*
+ * </pre>
+ *
+ * where a varint is an unsigned integer in 7-bit groups (least significant
+ * first), the length of the message and of a name is counted in bytes, and the
+ * length of a value in (UTF-16) characters. Node names are kept in a dictionary
+ * that is built on the fly: a name is written only the first time it occurs
+ * (when its index is the size of the dictionary), and referred to by index
+ * after that. A node with children is followed by its number of children, and
+ * then by the children themselves. Nothing is escaped.
+ * <p>
+ * The encoding holds the same information as the text form, so a node that is
+ * read back with a {@code BinarySDAParser} renders the same SDA content. Once
+ * created, this formatter is stateless and reusable.
+ *
+ * @see BinarySDAParser
+ */
+public final class BinarySDAFormatter {
+
+	static final byte[] MAGIC = { 'S', 'D', 'A', 1 }; // the start of a message
+	static final int VALUE = 1, CHILDREN = 2; // the flags in a node header
+	private static final int HEADER = MAGIC.length + 5; // maximum size of magic and length
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8; // the largest array that is safe to allocate
+
+
+	/**
+	 * Serialize a data node in binary SDA format and write it to a byte output
+	 * stream. This method will ignore a null node reference (and write nothing).
+	 * It flushes but does not close the output stream.
+	 *
+	 * @param output an output stream, not null
+	 * @param node   the node to be rendered
+	 * @throws IOException if an I/O operation failed
+	 */
+	public void format(final OutputStream output, DataNode node) throws IOException {
+
+		Objects.requireNonNull(output, "output stream must not be null");
+		if (node != null) {
+			final Encoder encoder = encode(node);
+			output.write(encoder.buf, encoder.start, encoder.n - encoder.start);
+			output.flush();
+		}
+	}
+
+
+	/**
+	 * Serializes a data node in binary SDA format and writes it to a file, which
+	 * is compressed if its name ends with ".gz", ".zz" or ".deflate".
+	 *
+	 * @param file the file to be created or overwritten, not null
+	 * @param node the node to be rendered
+	 * @throws IOException if an I/O operation failed
+	 */
+	public void format(final File file, DataNode node) throws IOException {
+
+		Objects.requireNonNull(file, "output file must not be null");
+		try (
+			FileOutputStream fs = new FileOutputStream(file);
+			OutputStream cs = Compression.of(file.getName()).compress(fs);
+		) {
+			format(cs, node);
+		} catch (Exception e) {
+			throw new IOException("error writing to " + file, e);
+		}
+	}
+
+
+	/**
+	 * Serializes a data node in binary SDA format and returns the bytes. This
+	 * method returns an empty array for a null node reference.
+	 *
+	 * @param node the node to be rendered
+	 * @return a byte array, not null
+	 */
+	public byte[] format(DataNode node) {
+
+		if (node == null) return new byte[0];
+		final Encoder encoder = encode(node);
+		return Arrays.copyOfRange(encoder.buf, encoder.start, encoder.n);
+	}
+
+
+	/*
+	 * Private helper to encode a node into a message. The body is encoded first,
+	 * leaving room for the magic and the length, which are then put right in
+	 * front of it, so the message need not be copied.
+	 */
+	private static Encoder encode(DataNode node) {
+
+		final Encoder encoder = new Encoder();
+		encoder.n = HEADER; encoder.node(node);
+
+		final int length = encoder.n - HEADER;
+		int start = HEADER - MAGIC.length - Encoder.size(length);
+		encoder.start = start;
+		System.arraycopy(MAGIC, 0, encoder.buf, start, MAGIC.length);
+		encoder.n = start + MAGIC.length; encoder.varint(length);
+		encoder.n = HEADER + length; return encoder;
+	}
+
+
+	/** The state of an encoding, with a byte buffer that grows as required. */
+	private static final class Encoder {
+
+		byte[] buf = new byte[1024]; // the encoded bytes
+		int n = 0; // the number of bytes in the buffer
+		int start = 0; // the start of the message in the buffer
+		private final Map<String, Integer> names = new HashMap<>(); // the name dictionary
+
+
+		/** Returns the number of bytes in the varint encoding of an integer. */
+		static int size(int i) {
+			int k = 1; while ((i >>>= 7) != 0) ++k; return k;
+		}
+
+
+		/**
+		 * Ensures room for the specified number of additional bytes. The buffer
+		 * grows up to the largest array that can be allocated.
+		 */
+		void ensure(long room) {
+			if (n + room > buf.length) {
+				if (n + room > MAX_ARRAY_SIZE) throw new OutOfMemoryError("message is too large");
+				buf = Arrays.copyOf(buf, (int) Math.min(Math.max(buf.length * 2L, n + room), MAX_ARRAY_SIZE));
+			}
+		}
+
+
+		/** Appends an unsigned integer in varint encoding (no room check). */
+		void varint(int i) {
+			while ((i & ~0x7F) != 0) {
+				buf[n++] = (byte) ((i & 0x7F) | 0x80); i >>>= 7;
+			}
+			buf[n++] = (byte) i;
+		}
+
+
+		/**
+		 * Appends a node and its children, in document order. The parents of the
+		 * current node are kept on a stack, with the index of their next child.
+		 */
+		void node(DataNode node) {
+
+			DataNode[] parents = new DataNode[16]; int[] next = new int[16]; int depth = 0;
+			while (true) {
+				header(node);
+				if (! node.isLeaf() && ! node.nodes().isEmpty()) {
+					if (depth == parents.length) {
+						parents = Arrays.copyOf(parents, depth << 1); next = Arrays.copyOf(next, depth << 1);
+					}
+					parents[depth] = node; next[depth++] = 0;
+				}
+				while (depth > 0 && next[depth - 1] == parents[depth - 1].nodes().size()) --depth;
+				if (depth == 0) return;
+				node = parents[depth - 1].<DataNode>nodes().get(next[depth - 1]++);
+			}
+		}
+
+
+		/** Appends a node without its children, followed by their number (if any). */
+		private void header(DataNode node) {
+
+			final String name = node.getName(), value = node.getValue();
+			final boolean leaf = node.isLeaf();
+			final int flags = (value.isEmpty() ? 0 : VALUE) | (leaf ? 0 : CHILDREN);
+
+			Integer index = names.get(name);
+			ensure(5 + 5 + name.length());
+			if (index != null) varint(index << 2 | flags);
+			else { // a new name, which is pure ASCII
+				index = names.size(); names.put(name, index);
+				varint(index << 2 | flags); varint(name.length());
+				for (int i = 0; i < name.length(); i++) buf[n++] = (byte) name.charAt(i);
+			}
+
+			if (! value.isEmpty()) value(value);
+			if (! leaf) {
+				ensure(5); varint(node.nodes().size());
+			}
+		}
+
+
+		/**
+		 * Appends a value, encoding its characters in UTF-8 in a single pass. An
+		 * unpaired surrogate is encoded as a question mark, as in String.getBytes().
+		 */
+		void value(String value) {
+
+			final int len = value.length();
+			long room = 5 + len * 3L; // at most three bytes per character
+			if (n + room > MAX_ARRAY_SIZE) { // count the bytes before giving up
+				room = 5;
+				for (int i = 0; i < len; i++) {
+					final char c = value.charAt(i);
+					room += (c < 0x80) ? 1 : (c < 0x800 || Character.isSurrogate(c)) ? 2 : 3;
+				}
+			}
+			ensure(room); varint(len);
+			final byte[] b = buf; int k = n;
+
+			for (int i = 0; i < len; i++) {
+				final char c = value.charAt(i);
+				if (c < 0x80) b[k++] = (byte) c;
+				else if (c < 0x800) {
+					b[k++] = (byte) (0xC0 | c >> 6); b[k++] = (byte) (0x80 | c & 0x3F);
+				}
+				else if (Character.isHighSurrogate(c) && i + 1 < len
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					final int cp = Character.toCodePoint(c, value.charAt(++i));
+					b[k++] = (byte) (0xF0 | cp >> 18); b[k++] = (byte) (0x80 | cp >> 12 & 0x3F);
+					b[k++] = (byte) (0x80 | cp >> 6 & 0x3F); b[k++] = (byte) (0x80 | cp & 0x3F);
+				}
+				else if (Character.isSurrogate(c)) b[k++] = '?';
+				else {
+					b[k++] = (byte) (0xE0 | c >> 12); b[k++] = (byte) (0x80 | c >> 6 & 0x3F);
+					b[k++] = (byte) (0x80 | c & 0x3F);
+				}
+			}
+			n = k;
+		}
+	}
+
+}
@@ -0,0 +1,265 @@
+package be.baur.sda.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.SDA;
+
+/**
+ * The binary SDA parser; used to read a message in binary SDA format and create
+ * a {@code DataNode}. Refer to the {@link BinarySDAFormatter} for a description
+ * of the encoding. Names and values are read by length, so nothing needs to be
+ * scanned or unescaped, and each name is validated only once.
+ * <p>
+ * When reading from an input stream, the parser reads exactly one message (by
+ * its length), so a stream can carry any number of consecutive messages. A
+ * message that is not valid causes an {@code SDAParseException}, where the
+ * error offset is counted in bytes from the start of the message. The parser
+ * is re-usable and thread-safe, and is not recursive, so it can handle messages
+ * of any depth.
+ *
+ * @see BinarySDAFormatter
+ */
+public final class BinarySDAParser {
+
+	private static final int CHUNK = 1 << 16; // maximum read ahead of the allocation
+
+
+	/**
+	 * Creates a data node from a message in binary SDA format, read from a byte
+	 * input stream. This method reads no further than the end of the message,
+	 * and does not close the stream.
+	 *
+	 * @param input an input stream, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if the message is not valid
+	 */
+	public DataNode parse(InputStream input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input stream must not be null");
+
+		final byte[] head = new byte[BinarySDAFormatter.MAGIC.length + 5];
+		int n = 0, b;
+		while (n < BinarySDAFormatter.MAGIC.length) { // read the magic
+			if ((b = input.read()) < 0) throw new SDAParseException("unexpected end of input", n);
+			head[n++] = (byte) b;
+		}
+		do { // and the length, one byte at a time
+			if ((b = input.read()) < 0) throw new SDAParseException("unexpected end of input", n);
+			head[n++] = (byte) b;
+		} while ((b & 0x80) != 0 && n < head.length);
+
+		final Decoder decoder = new Decoder(head, 0, n, 0);
+		final int length = decoder.start(); // the length of the body
+
+		// read the body, but do not trust the length for a (huge) allocation
+		byte[] body = new byte[Math.min(length, CHUNK)]; int k = 0, r;
+		while (k < length) {
+			if (k == body.length) body = Arrays.copyOf(body, (int) Math.min(length, (long) k << 1));
+			if ((r = input.read(body, k, body.length - k)) < 0)
+				throw new SDAParseException("unexpected end of input", n + k);
+			k += r;
+		}
+
+		return new Decoder(body, 0, length, n).message();
+	}
+
+
+	/**
+	 * Creates a data node from a message in binary SDA format, as returned by
+	 * {@link BinarySDAFormatter#format(DataNode)}.
+	 *
+	 * @param input a byte array, not null
+	 * @return a (root) node, never null
+	 * @throws SDAParseException if the message is not valid
+	 */
+	public DataNode parse(byte[] input) throws SDAParseException {
+
+		Objects.requireNonNull(input, "input array must not be null");
+		final Decoder decoder = new Decoder(input, 0, input.length, 0);
+		final int length = decoder.start(), end = decoder.pos + length;
+		if (length > input.length - decoder.pos)
+			throw new SDAParseException("unexpected end of input", input.length);
+		if (end < input.length)
+			throw new SDAParseException("excess input after root node", end + 1);
+
+		return new Decoder(input, decoder.pos, end, 0).message();
+	}
+
+
+	/**
+	 * Creates a data node from a file with a message in binary SDA format. A file
+	 * that is compressed with GZIP or DEFLATE is decompressed while it is read.
+	 *
+	 * @param file an input file, not null
+	 * @return a (root) node, never null
+	 * @throws IOException    if an I/O operation failed
+	 * @throws ParseException if the message is not valid
+	 */
+	public DataNode parse(File file) throws IOException, ParseException {
+
+		Objects.requireNonNull(file, "input file must not be null");
+		try (
+			InputStream fs = new BufferedInputStream(new FileInputStream(file), Compression.BUFSIZE);
+			InputStream is = Compression.of(fs).decompress(fs);
+		) {
+			return parse(is);
+		}
+		catch (IOException e) {
+			throw new IOException("error reading from " + file, e);
+		}
+		catch (ParseException e) {
+			throw new FileParseException(file.toString(), e);
+		}
+	}
+
+
+	/** The state of a decoding, which reads bytes from an array. */
+	private static final class Decoder {
+
+		private final byte[] buf; // the encoded bytes
+		private final int end; // the end of the input in the buffer
+		private final int base; // the offset of the buffer in the message
+		int pos; // the index of the next byte in the buffer
+		private String[] names = new String[16]; // the name dictionary
+		private int nameCount = 0; // the number of names in the dictionary
+		private char[] chars = new char[64]; // to decode values
+		private int count; // the number of children of the last node read, -1 if none
+
+
+		/** Creates a decoder for a range of a buffer, at the specified offset in the message. */
+		Decoder(byte[] buf, int pos, int end, int base) {
+			this.buf = buf; this.pos = pos; this.end = end; this.base = base;
+		}
+
+
+		/** Returns an SDA parse exception for the byte before the current position. */
+		private SDAParseException exception(String format, Object... args) {
+			return new SDAParseException(String.format(format, args), base + pos);
+		}
+
+
+		/** Reads the magic and the length of the body, which is returned. */
+		int start() throws SDAParseException {
+
+			for (byte m : BinarySDAFormatter.MAGIC) {
+				if (pos == end) throw exception("unexpected end of input");
+				if (buf[pos++] != m) throw exception("invalid binary SDA header");
+			}
+			return varint();
+		}
+
+
+		/** Reads an unsigned integer in varint encoding. */
+		private int varint() throws SDAParseException {
+
+			int i = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				if (pos == end) throw exception("unexpected end of input");
+				final int b = buf[pos++];
+				i |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					if (i < 0 || (shift == 28 && b > 0x0F)) break;
+					return i;
+				}
+			}
+			throw exception("invalid length");
+		}
+
+
+		/**
+		 * Reads a message body, and returns the root node. Children are counted
+		 * down on a stack, which has the number of children yet to be read for
+		 * each open node.
+		 */
+		DataNode message() throws SDAParseException {
+
+			int[] counts = new int[16]; int depth = 0;
+			final DataNode root = node(); DataNode node = root;
+			if (count > 0) counts[depth++] = count;
+
+			while (depth > 0) {
+				if (counts[depth - 1] == 0) {
+					node = node.getParent(); --depth; continue;
+				}
+				--counts[depth - 1];
+				final DataNode child = node(); node.add(child);
+				if (count > 0) {
+					if (depth == counts.length) counts = Arrays.copyOf(counts, depth << 1);
+					counts[depth++] = count; node = child;
+				}
+			}
+
+			if (pos < end) throw new SDAParseException("excess input after root node", base + pos + 1);
+			return root;
+		}
+
+
+		/** Reads a node, and sets the number of its children. */
+		private DataNode node() throws SDAParseException {
+
+			final int header = varint(), index = header >>> 2;
+			if (index > nameCount) throw exception("invalid name reference (%d)", index);
+
+			final String name;
+			if (index < nameCount) name = names[index];
+			else { // a new name, which is added to the dictionary
+				final int len = varint();
+				if (len > end - pos) { pos = end; throw exception("unexpected end of input"); }
+				name = new String(buf, pos, len, StandardCharsets.ISO_8859_1); pos += len;
+				if (! SDA.isName(name)) throw exception("invalid node name (%s)", name);
+				if (nameCount == names.length) names = Arrays.copyOf(names, nameCount << 1);
+				names[nameCount++] = name;
+			}
+
+			final DataNode node = new DataNode(name, (header & BinarySDAFormatter.VALUE) == 0 ? "" : value());
+			if ((header & BinarySDAFormatter.CHILDREN) == 0) count = -1;
+			else {
+				node.add(null); count = varint();
+			}
+			return node;
+		}
+
+
+		/** Reads a value, decoding its characters from UTF-8. */
+		private String value() throws SDAParseException {
+
+			final int len = varint();
+			if (len > end - pos) { pos = end; throw exception("unexpected end of input"); }
+			if (len > chars.length) chars = new char[Math.max(len, chars.length << 1)];
+
+			final byte[] b = buf; final char[] c = chars; int k = pos;
+			for (int i = 0; i < len; ) {
+				if (k == end) { pos = end; throw exception("unexpected end of input"); }
+				final int b1 = b[k++];
+				if (b1 >= 0) { c[i++] = (char) b1; continue; }
+
+				final int cnt = (b1 & 0xE0) == 0xC0 ? 2 : (b1 & 0xF0) == 0xE0 ? 3 : (b1 & 0xF8) == 0xF0 ? 4 : 0;
+				if (cnt == 0 || cnt > end - k + 1 || (cnt == 4 && i + 1 == len)) {
+					pos = k; throw exception("invalid value encoding");
+				}
+				int cp = b1 & (0x7F >> cnt);
+				for (int j = 1; j < cnt; j++) {
+					final int bj = b[k++];
+					if ((bj & 0xC0) != 0x80) { pos = k; throw exception("invalid value encoding"); }
+					cp = (cp << 6) | (bj & 0x3F);
+				}
+				if (cnt == 4) {
+					if (cp < 0x10000 || cp > Character.MAX_CODE_POINT) { pos = k; throw exception("invalid value encoding"); }
+					c[i++] = Character.highSurrogate(cp); c[i++] = Character.lowSurrogate(cp);
+				}
+				else c[i++] = (char) cp;
+			}
+			pos = k; return new String(c, 0, len);
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression of a file, as supported by the JDK. When reading, the
+ * compression is detected from the first two bytes of the file, so it does not
+ * depend on the file name. Neither of the headers can start valid SDA content
+ * (or a binary SDA message), so plain files are never mistaken for compressed
+ * ones. When writing, the compression is taken from the file name extension.
+ *
+ * @see Parser#parse(java.io.File)
+ * @see Formatter#format(java.io.File, be.baur.sda.Node)
+ */
+enum Compression {
+
+	/** No compression. */
+	NONE,
+
+	/** GZIP compression, with extension ".gz". */
+	GZIP,
+
+	/** DEFLATE compression in ZLIB format, with extension ".zz" or ".deflate". */
+	DEFLATE;
+
+	static final int BUFSIZE = 1 << 16; // the size of the (de)compression buffers
+
+
+	/**
+	 * Returns the compression indicated by the first two bytes of a file. Only
+	 * ZLIB headers with the default window size are recognized, since others
+	 * (like "hb") might well be the start of SDA content.
+	 */
+	static Compression of(int b0, int b1) {
+		if (b0 == 0x1F && b1 == 0x8B) return GZIP;
+		if (b0 == 0x78 && (b1 == 0x01 || b1 == 0x5E || b1 == 0x9C || b1 == 0xDA))
+			return DEFLATE; // 'x' followed by anything that cannot be in a name
+		return NONE;
+	}
+
+
+	/**
+	 * Returns the compression of a file channel, which is detected from its first
+	 * two bytes without changing the position of the channel.
+	 */
+	static Compression of(FileChannel channel) throws IOException {
+		final ByteBuffer head = ByteBuffer.allocate(2);
+		final long position = channel.position();
+		while (head.hasRemaining() && channel.read(head, position + head.position()) > 0);
+		return head.position() < 2 ? NONE : of(head.get(0) & 0xFF, head.get(1) & 0xFF);
+	}
+
+
+	/**
+	 * Returns the compression of an input stream that supports marks, which is
+	 * detected from its first two bytes. The stream is reset to where it was.
+	 */
+	static Compression of(InputStream input) throws IOException {
+		input.mark(2);
+		final int b0 = input.read(), b1 = input.read();
+		input.reset();
+		return (b1 < 0) ? NONE : of(b0, b1);
+	}
+
+
+	/** Returns the compression indicated by the extension of a file name. */
+	static Compression of(String filename) {
+		final String name = filename.toLowerCase();
+		if (name.endsWith(".gz")) return GZIP;
+		if (name.endsWith(".zz") || name.endsWith(".deflate")) return DEFLATE;
+		return NONE;
+	}
+
+
+	/** Returns a stream that decompresses an input stream. */
+	InputStream decompress(InputStream input) throws IOException {
+		switch (this) {
+		case GZIP: return new GZIPInputStream(input, BUFSIZE);
+		case DEFLATE: return new InflaterInputStream(input, new Inflater(), BUFSIZE) {
+			@Override // release the inflater, since it is not the default one
+			public void close() throws IOException {
+				try { super.close(); } finally { inf.end(); }
+			}
+		};
+		default: return input;
+		}
+	}
+
+
+	/**
+	 * Returns a stream that compresses to an output stream. Closing it finishes
+	 * the compression, and closes the output stream.
+	 */
+	OutputStream compress(OutputStream output) throws IOException {
+		switch (this) {
+		case GZIP: return new GZIPOutputStream(output, BUFSIZE);
+		case DEFLATE: return new DeflaterOutputStream(output, new Deflater(), BUFSIZE) {
+			@Override // release the deflater, since it is not the default one
+			public void close() throws IOException {
+				try { super.close(); } finally { def.end(); }
+			}
+		};
+		default: return output;
+		}
+	}
+
+}
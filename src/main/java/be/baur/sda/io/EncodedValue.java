@@ -0,0 +1,58 @@
+package be.baur.sda.io;
+
+import be.baur.sda.SDA;
+
+/**
+ * An {@code EncodedValue} is a slice of the input that holds a value as it
+ * appears in SDA content (without quotes), which is decoded only when it is
+ * turned into a string. It is used by the parser to support deferred values.
+ *
+ * @see be.baur.sda.DataNode#setValue(CharSequence)
+ */
+final class EncodedValue implements CharSequence {
+
+	private final char[] chars; // the input, not to be modified
+	private final int offset; // the start of the value in the input
+	private final int length; // the encoded length of the value
+	private final boolean escaped; // whether the value contains escapes
+
+
+	/** Creates an encoded value from a slice of the input. */
+	EncodedValue(char[] chars, int offset, int length, boolean escaped) {
+		this.chars = chars; this.offset = offset; this.length = length; this.escaped = escaped;
+	}
+
+
+	/** Returns the decoded value. */
+	@Override
+	public String toString() {
+
+		if (! escaped) return new String(chars, offset, length);
+
+		final char[] s = new char[length]; int n = 0;
+		for (int i = offset, end = offset + length; i < end; ++i) {
+			final char c = chars[i];
+			s[n++] = (c == SDA.BSLASH) ? chars[++i] : c;
+		}
+		return new String(s, 0, n);
+	}
+
+
+	@Override
+	public int length() {
+		return escaped ? toString().length() : length;
+	}
+
+
+	@Override
+	public char charAt(int index) {
+		return toString().charAt(index);
+	}
+
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().subSequence(start, end);
+	}
+
+}
@@ -18,7 +18,7 @@ public class FileParseException extends ParseException {
 	 * @param cause    the exception causing this exception to be thrown
 	 */
 	public FileParseException(String filename, ParseException cause) {
-		super(cause.getMessage(), cause.getErrorOffset());
+		super(cause.getMessage(), cause.getErrorOffset(), cause.getErrorLine(), cause.getErrorColumn());
 		initCause(cause); this.filename = filename;
 	}
 
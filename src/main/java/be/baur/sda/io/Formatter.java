@@ -7,8 +7,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Objects;
 
@@ -37,7 +37,9 @@ public interface Formatter<T extends Node> {
 
 	
 	/**
-	 * Serializes a node and writes it to a file in UTF-8 encoding.
+	 * Serializes a node and writes it to a file in UTF-8 encoding. If the file
+	 * name ends with ".gz", the file is compressed with GZIP, and if it ends with
+	 * ".zz" or ".deflate", it is compressed with DEFLATE (in ZLIB format).
 	 * 
 	 * @param node the node to be rendered
 	 * @param file the file to be created or overwritten, not null
@@ -48,7 +50,8 @@ public interface Formatter<T extends Node> {
 		Objects.requireNonNull(file, "input file must not be null");
 		try (
 			FileOutputStream fs = new FileOutputStream(file);
-			Writer os = new OutputStreamWriter(fs, "UTF-8");
+			OutputStream cs = Compression.of(file.getName()).compress(fs);
+			Writer os = new OutputStreamWriter(cs, "UTF-8");
 			Writer bw = new BufferedWriter(os);
 		) {
 			format(bw, node);
@@ -59,7 +62,8 @@ public interface Formatter<T extends Node> {
 		
 	
 	/**
-	 * Serializes a node and returns a string.
+	 * Serializes a node and returns a string. The default method writes to a
+	 * single (unsynchronized) buffer.
 	 * 
 	 * @param node the node to be rendered
 	 * @return a string representing the node
@@ -67,7 +71,7 @@ public interface Formatter<T extends Node> {
 	 */
 	default String format(T node) throws IOException {
 
-		Writer sw = new StringWriter();
+		Writer sw = new StringBuilderWriter(256);
 		try {
 			format(sw, node);
 		} catch (Exception e) {
@@ -0,0 +1,416 @@
+package be.baur.sda.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.SDA;
+
+/**
+ * A parser for bulk throughput, which reads SDA content in UTF-8 encoding in
+ * two stages. The first stage builds a structural index: the positions of all
+ * quotes, and of all braces outside values. It examines 64 bytes at a time, as
+ * eight words of eight bytes each, using bit-parallel operations (SWAR) to find
+ * quotes, backslashes and braces, and a prefix XOR of the quote positions to
+ * find which bytes are inside values. The second stage builds the nodes from
+ * the index, looking only at the bytes between structural positions.
+ * <p>
+ * The result is identical to that of an {@code SDAParser}. Input that is not
+ * valid (or that is unusual, like non-ASCII white-space between nodes) is
+ * handed over to an {@code SDAParser}, so errors are reported with exactly the
+ * same message and offset. This parser reads all input into memory, and it
+ * has no settings. It is re-usable and thread-safe, and is not recursive.
+ *
+ * @see SDAParser
+ */
+public final class IndexedSDAParser implements Parser<DataNode> {
+
+	private static final SDAParser PARSER = new SDAParser(); // for invalid input
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8; // the largest array that is safe to allocate
+
+	private static final long ONES = 0x0101010101010101L; // a one in each byte
+	private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL; // the low 7 bits of each byte
+	private static final long HIGH = 0x8080808080808080L; // the high bit of each byte
+	private static final long GATHER = 0x0102040810204080L; // moves byte bits to the top
+
+
+	/**
+	 * Creates a data node from a character input stream in SDA format. The input
+	 * is read into memory and encoded in UTF-8 first.
+	 */
+	@Override
+	public DataNode parse(Reader input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input reader must not be null");
+		final Scanner scanner = Scanner.readFully(input);
+		return parse(scanner.buffer(), scanner.limit());
+	}
+
+
+	/** Creates a data node from a string in SDA format. */
+	@Override
+	public DataNode parse(String input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input string must not be null");
+		return parse(input.toCharArray(), input.length());
+	}
+
+
+	/*
+	 * Private helper to parse characters, which are encoded in UTF-8 first. The
+	 * encoded length is counted in advance, so the bytes are allocated exactly.
+	 * An unpaired surrogate cannot be encoded, and input that would not fit in
+	 * an array is too large to index, so both are left to the SDA parser.
+	 */
+	private static DataNode parse(char[] chars, int length) throws IOException, SDAParseException {
+
+		long size = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = chars[i];
+			if (c < 0x80) ++size;
+			else if (c < 0x800) size += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(chars[i + 1])) { size += 4; ++i; }
+			else if (Character.isSurrogate(c))
+				return PARSER.parse(Arrays.copyOf(chars, length));
+			else size += 3;
+		}
+		if (size > MAX_ARRAY_SIZE)
+			return PARSER.parse(Arrays.copyOf(chars, length));
+
+		final byte[] bytes = new byte[(int) size]; int n = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = chars[i];
+			if (c < 0x80) bytes[n++] = (byte) c;
+			else if (c < 0x800) {
+				bytes[n++] = (byte) (0xC0 | c >> 6); bytes[n++] = (byte) (0x80 | c & 0x3F);
+			}
+			else if (Character.isHighSurrogate(c)) { // paired, as counted above
+				final int cp = Character.toCodePoint(c, chars[++i]);
+				bytes[n++] = (byte) (0xF0 | cp >> 18); bytes[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+				bytes[n++] = (byte) (0x80 | cp >> 6 & 0x3F); bytes[n++] = (byte) (0x80 | cp & 0x3F);
+			}
+			else {
+				bytes[n++] = (byte) (0xE0 | c >> 12); bytes[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+				bytes[n++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+
+		final DataNode node = build(bytes, n, index(bytes, n));
+		return (node != null) ? node : PARSER.parse(Arrays.copyOf(chars, length));
+	}
+
+
+	/**
+	 * Creates a data node from a byte array with SDA content in UTF-8 encoding.
+	 *
+	 * @param input a byte array, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(byte[] input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input array must not be null");
+		final DataNode node = build(input, input.length, index(input, input.length));
+		return (node != null) ? node : PARSER.parse(input);
+	}
+
+
+	/**
+	 * Creates a data node from a file with SDA content in UTF-8 encoding, which is
+	 * read into memory at once. A compressed file is decompressed while it is read.
+	 */
+	@Override
+	public DataNode parse(File file) throws IOException, ParseException {
+
+		Objects.requireNonNull(file, "input file must not be null");
+		byte[] bytes = new byte[(int) Math.min(file.length(), MAX_ARRAY_SIZE)];
+		int n = 0, r;
+		try (
+			InputStream fs = new BufferedInputStream(new FileInputStream(file), Compression.BUFSIZE);
+			InputStream is = Compression.of(fs).decompress(fs);
+		) {
+			while (true) {
+				while (n < bytes.length && (r = is.read(bytes, n, bytes.length - n)) >= 0) n += r;
+				if (n < bytes.length || (r = is.read()) < 0) break; // the end of input
+
+				// there is more input than expected (the file grew, or is compressed)
+				if (n == MAX_ARRAY_SIZE) throw new OutOfMemoryError("file is too large (" + file + ")");
+				bytes = Arrays.copyOf(bytes, (int) Math.min(n + Math.max(n >> 1, (long) Compression.BUFSIZE), MAX_ARRAY_SIZE));
+				bytes[n++] = (byte) r;
+			}
+		}
+		catch (IOException e) {
+			throw new IOException("error reading from " + file, e);
+		}
+
+		try {
+			return parse(n == bytes.length ? bytes : Arrays.copyOf(bytes, n));
+		}
+		catch (ParseException e) {
+			throw new FileParseException(file.toString(), e);
+		}
+	}
+
+
+	/*
+	 * Stage 1: returns the structural index of the input, which holds the
+	 * positions of all unescaped quotes, and of all braces outside values, in
+	 * ascending order. The first element is the number of positions. Returns null
+	 * if the input ends inside a value. Escapes are resolved from the positions
+	 * of backslashes, which are rare, so that is done one backslash at a time.
+	 */
+	static int[] index(final byte[] bytes, final int length) {
+
+		int[] index = new int[16 + (length >> 3)]; int n = 1;
+		final ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		final ByteBuffer tail = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+		long inside = 0; // all ones if the previous block ended inside a value
+		boolean escape = false; // whether the previous block ended in an escape
+
+		for (int start = 0; start < length; start += 64) {
+
+			ByteBuffer block = in; int at = start;
+			if (length - start < 64) { // copy the last block, padded with zeros
+				tail.put(bytes, start, length - start); block = tail; at = 0;
+			}
+
+			long quotes = 0, slashes = 0, braces = 0;
+			for (int k = 0; k < 64; k += 8) {
+				final long w = block.getLong(at + k);
+				quotes |= gather(zeros(w ^ ONES * SDA.QUOTE)) << k;
+				slashes |= gather(zeros(w ^ ONES * SDA.BSLASH)) << k;
+				braces |= gather(zeros(w ^ ONES * SDA.LBRACE) | zeros(w ^ ONES * SDA.RBRACE)) << k;
+			}
+
+			if (slashes != 0 || escape) { // find the escaped characters
+				long escaped = escape ? 1L : 0L;
+				escape = false;
+				for (long s = slashes & ~escaped; s != 0; ) {
+					final int i = Long.numberOfTrailingZeros(s);
+					if (i == 63) escape = true;
+					else escaped |= 2L << i;
+					s &= ~((1L << i) | (2L << i)); // a backslash that is escaped is no escape
+				}
+				quotes &= ~escaped; braces &= ~escaped;
+			}
+
+			long values = quotes; // prefix XOR, so a bit is set from an opening quote
+			values ^= values << 1; values ^= values << 2; values ^= values << 4;
+			values ^= values << 8; values ^= values << 16; values ^= values << 32;
+			values ^= inside; inside = values >> 63;
+
+			long structurals = quotes | (braces & ~values);
+			if (n + 64 > index.length) index = Arrays.copyOf(index, index.length << 1);
+			while (structurals != 0) {
+				index[n++] = start + Long.numberOfTrailingZeros(structurals);
+				structurals &= structurals - 1;
+			}
+		}
+
+		if (inside != 0) return null; // the input ends inside a value
+		index[0] = n - 1; return index;
+	}
+
+
+	/*
+	 * Returns the high bit of each byte in a word that is zero. A byte is zero if
+	 * adding 0x7F to its low bits does not set its high bit, and neither was that
+	 * set to begin with.
+	 */
+	private static long zeros(long w) {
+		return ~(((w & LOW7) + LOW7) | w) & HIGH;
+	}
+
+
+	/* Returns the high bits of the bytes in a word as 8 bits, in the order of the bytes. */
+	private static long gather(long highs) {
+		return ((highs >>> 7) * GATHER) >>> 56;
+	}
+
+
+	/*
+	 * Stage 2: builds the nodes from the input and its structural index. Returns
+	 * null if the index is null, or if the input is not (usual) valid SDA, in
+	 * which case the SDA parser has to find out what is wrong.
+	 */
+	private static DataNode build(final byte[] bytes, final int length, final int[] index) {
+
+		if (index == null) return null;
+		final Symbols symbols = new Symbols(bytes);
+		final int count = index[0] + 1; // the end of the index
+
+		DataNode root = null, parent = null;
+		int pos = 0, i = 1; // the next byte, and the next structural position
+		while (true) {
+
+			final int end = (i < count) ? index[i] : length; // the end of the gap
+			final int from = skip(bytes, pos, end); // white-space
+			if (from == end) { // no name in the gap
+				if (i == count) // the end of input
+					return (root != null && parent == null) ? root : null;
+				if (bytes[end] != SDA.RBRACE || parent == null) return null;
+				parent = parent.getParent(); pos = end + 1; ++i;
+				continue;
+			}
+			if (parent == null && root != null) return null; // excess input
+
+			final String name = symbols.name(from, end);
+			if (name == null || i == count) return null;
+
+			final DataNode node;
+			if (bytes[end] == SDA.QUOTE) { // a value, followed by complex content or not
+				final String value = value(bytes, end + 1, index[i+1]);
+				if (value == null) return null;
+				node = new DataNode(name, value);
+				pos = index[i+1] + 1; i += 2;
+				if (i < count && bytes[index[i]] == SDA.LBRACE && skip(bytes, pos, index[i]) == index[i]) {
+					node.add(null); pos = index[i] + 1; ++i;
+				}
+			}
+			else if (bytes[end] == SDA.LBRACE) { // complex content without a value
+				node = new DataNode(name); node.add(null);
+				pos = end + 1; ++i;
+			}
+			else return null; // a right brace after a name
+
+			if (parent != null) parent.add(node); else root = node;
+			if (! node.isLeaf()) parent = node;
+		}
+	}
+
+
+	/*
+	 * Returns the position of the first byte in a range that is not white-space.
+	 * Only ASCII white-space is skipped, which is the same for Character.isWhitespace().
+	 */
+	private static int skip(final byte[] bytes, int from, final int to) {
+		while (from < to) {
+			final int c = bytes[from];
+			if (c == ' ' || (c >= 0x09 && c <= 0x0D) || (c >= 0x1C && c <= 0x1F)) ++from;
+			else break;
+		}
+		return from;
+	}
+
+
+	/*
+	 * Returns the value for the bytes in a range (without quotes), or null if it
+	 * has a backslash at the very end. A value that is pure ASCII is copied at
+	 * once, or unescaped in a single pass. Otherwise, it is decoded as by the SDA
+	 * parser, which replaces malformed input, and then unescaped.
+	 */
+	private static String value(final byte[] bytes, final int from, final int to) {
+
+		int slash = -1; // the position of the first backslash, if any
+		for (int k = from; k < to; k++) {
+			final byte b = bytes[k];
+			if (b < 0) return decode(bytes, from, to);
+			if (b == SDA.BSLASH && slash < 0) slash = k;
+		}
+		if (slash < 0) return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+
+		final char[] chars = new char[to - from]; int n = 0;
+		for (int k = from; k < to; k++) {
+			if (bytes[k] == SDA.BSLASH && ++k == to) return null;
+			chars[n++] = (char) bytes[k];
+		}
+		return new String(chars, 0, n);
+	}
+
+
+	/*
+	 * Returns the value for the bytes in a range that is not pure ASCII, which are
+	 * decoded and unescaped, or null if the value has a backslash at the very end.
+	 */
+	private static String decode(final byte[] bytes, final int from, final int to) {
+
+		final char[] chars = new char[to - from]; int n = 0, r;
+		final UTF8Reader reader = new UTF8Reader(ByteBuffer.wrap(bytes, from, to - from));
+		try {
+			while ((r = reader.read(chars, n, chars.length - n)) > 0) n += r;
+		} catch (IOException e) { // this cannot happen
+			throw new IllegalStateException(e);
+		}
+
+		int k = 0; // the number of unescaped characters
+		for (int j = 0; j < n; j++) {
+			if (chars[j] == SDA.BSLASH && ++j == n) return null;
+			chars[k++] = chars[j];
+		}
+		return new String(chars, 0, k);
+	}
+
+
+	/**
+	 * A symbol table for node names, which are looked up by their bytes. The
+	 * table is cleared when it is full, as in the scanner.
+	 */
+	private static final class Symbols {
+
+		private static final int MAXSYMBOLS = 4096; // the number of names before the table is cleared
+
+		private final byte[] bytes; // the input
+		private String[] symbols = new String[64]; // the names, by hash
+		private int count = 0; // the number of names
+
+
+		Symbols(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+
+		/**
+		 * Returns the (shared) name that starts at the first position, followed
+		 * by optional white-space up to the second. Returns null if this is not a
+		 * valid name.
+		 */
+		String name(final int from, final int to) {
+
+			int c = bytes[from];
+			if (! SDA.isNameStart(c)) return null;
+			boolean valid = false; int h = 0, k = from;
+			do {
+				valid |= (c != SDA.USCORE); h = 31 * h + c;
+				c = (++k < to) ? bytes[k] : -1;
+			} while (SDA.isNamePart(c));
+			if (! valid || skip(bytes, k, to) != to) return null;
+
+			final int len = k - from;
+			int i = (h ^ (h >>> 16)) & (symbols.length - 1); String s;
+			while ((s = symbols[i]) != null) { // linear probing
+				if (s.hashCode() == h && s.length() == len) {
+					int j = 0; while (j < len && s.charAt(j) == bytes[from + j]) ++j;
+					if (j == len) return s;
+				}
+				i = (i + 1) & (symbols.length - 1);
+			}
+
+			if (count == MAXSYMBOLS) { // start over, with the names that follow
+				symbols = new String[64]; count = 0; i = (h ^ (h >>> 16)) & (symbols.length - 1);
+			}
+			s = new String(bytes, from, len, StandardCharsets.ISO_8859_1); symbols[i] = s;
+			if (++count > (symbols.length >> 1)) { // keep the table sparse
+				final String[] old = symbols; symbols = new String[old.length << 1];
+				for (String o : old) if (o != null) {
+					final int oh = o.hashCode();
+					int j = (oh ^ (oh >>> 16)) & (symbols.length - 1);
+					while (symbols[j] != null) j = (j + 1) & (symbols.length - 1);
+					symbols[j] = o;
+				}
+			}
+			return s;
+		}
+	}
+
+}
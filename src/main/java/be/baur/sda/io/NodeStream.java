@@ -0,0 +1,59 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import be.baur.sda.DataNode;
+
+/**
+ * Adapts a source of nodes (such as a record or document reader) to a stream.
+ * Since a stream cannot throw checked exceptions, an I/O exception is wrapped
+ * in an unchecked I/O exception, and so is an SDA parse exception (which is
+ * then the cause of the wrapped exception).
+ */
+final class NodeStream {
+
+	private NodeStream() {}
+
+
+	/** Tells whether there is another node, like {@code Iterator.hasNext()}. */
+	@FunctionalInterface
+	interface HasNext {
+		boolean hasNext() throws IOException, SDAParseException;
+	}
+
+
+	/** Returns the next node, like {@code Iterator.next()}. */
+	@FunctionalInterface
+	interface Next {
+		DataNode next() throws IOException, SDAParseException;
+	}
+
+
+	/** Returns a sequential stream of the remaining nodes, read by the specified methods. */
+	static Stream<DataNode> of(HasNext hasNext, Next next) {
+
+		return StreamSupport.stream(new Spliterators.AbstractSpliterator<DataNode>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super DataNode> action) {
+				try {
+					if (! hasNext.hasNext()) return false;
+					action.accept(next.next()); return true;
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				catch (SDAParseException e) {
+					throw new UncheckedIOException(new IOException(e.getLocalizedMessage(), e));
+				}
+			}
+		}, false);
+	}
+
+}
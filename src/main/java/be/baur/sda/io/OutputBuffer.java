@@ -0,0 +1,286 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import be.baur.sda.SDA;
+
+/**
+ * A buffer for SDA output, which collects output in an array and writes it in
+ * blocks. This saves a (synchronized) call on the output stream for every name,
+ * value and separator that is written, and values are escaped straight into the
+ * buffer. There is a buffer for characters, and one for bytes in UTF-8, which
+ * encodes directly, without a charset encoder. Names and indentation are known
+ * to be ASCII, so only values need to be encoded.
+ */
+abstract class OutputBuffer {
+
+	/** Returns a buffer for a character output stream. */
+	static OutputBuffer of(Writer output) {
+		return new Chars(output);
+	}
+
+
+	/** Returns a buffer for a byte output stream, in UTF-8 encoding. */
+	static OutputBuffer of(OutputStream output) {
+		return new Bytes(output, null, null);
+	}
+
+
+	/** Returns a buffer for a byte channel, in UTF-8 encoding. */
+	static OutputBuffer of(WritableByteChannel output) {
+		return new Bytes(null, output, null);
+	}
+
+
+	/**
+	 * Returns a buffer for a byte buffer, in UTF-8 encoding. A buffer overflow
+	 * exception is thrown if the output does not fit.
+	 */
+	static OutputBuffer of(ByteBuffer output) {
+		return new Bytes(null, null, output);
+	}
+
+
+	private static final int INDENTS = 16; // the number of indentations to cache
+
+
+	/** Returns the indentations for the first depths, by a string for one depth. */
+	static String[] indents(String indent) {
+		final String[] indents = new String[INDENTS]; indents[0] = "";
+		for (int i = 1; i < INDENTS; i++) indents[i] = indents[i - 1] + indent;
+		return indents;
+	}
+
+
+	/**
+	 * Appends the indentation for a depth, using the indentations from {@link
+	 * #indents}. A deeper indentation is written in parts, rather than cached.
+	 */
+	final void indent(String[] indents, int depth) throws IOException {
+		final int max = indents.length - 1;
+		for (; depth > max; depth -= max) write(indents[max]);
+		write(indents[depth]);
+	}
+
+
+	/** Appends an ASCII character. */
+	abstract void write(char c) throws IOException;
+
+
+	/** Appends a string, which is ASCII if this is a byte buffer. */
+	abstract void write(String s) throws IOException;
+
+
+	/** Appends a value in quotes, escaping backslashes and quotes in a single pass. */
+	abstract void quote(String value) throws IOException;
+
+
+	/** Writes the buffer to the output, without flushing it. */
+	abstract void drain() throws IOException;
+
+
+	/** Writes the buffer to the output, and flushes it. */
+	abstract void flush() throws IOException;
+
+
+	/** Writes the buffer to the output, and closes it. */
+	abstract void close() throws IOException;
+
+
+	/** A buffer for a character output stream. */
+	private static final class Chars extends OutputBuffer {
+
+		private static final int BUFSIZE = 8192; // the size of the buffer
+
+		private final Writer output; // the output stream
+		private final char[] buf = new char[BUFSIZE]; // the character buffer
+		private int n = 0; // the number of characters in the buffer
+
+
+		Chars(Writer output) {
+			this.output = output;
+		}
+
+
+		@Override
+		void write(char c) throws IOException {
+			if (n == buf.length) drain();
+			buf[n++] = c;
+		}
+
+
+		@Override
+		void write(String s) throws IOException {
+			final int length = s.length();
+			if (length > buf.length - n) {
+				drain();
+				if (length > buf.length) { output.write(s); return; }
+			}
+			s.getChars(0, length, buf, n); n += length;
+		}
+
+
+		/*
+		 * A value that fits is copied into the buffer at once, and scanned for
+		 * characters to escape from there; in most cases there are none.
+		 */
+		@Override
+		void quote(String value) throws IOException {
+
+			write((char) SDA.QUOTE);
+			final int length = value.length();
+			int from = 0; // the first character that is not yet in the buffer
+			if (length <= buf.length - n) {
+				value.getChars(0, length, buf, n);
+				final int end = n + length; int i = n;
+				while (i < end && buf[i] != SDA.QUOTE && buf[i] != SDA.BSLASH) ++i;
+				from = i - n; n = i;
+			}
+
+			for (int i = from; i < length; i++) { // escape the rest, if any
+				final char c = value.charAt(i);
+				if (n > buf.length - 2) drain();
+				if (c == SDA.QUOTE || c == SDA.BSLASH) buf[n++] = (char) SDA.BSLASH;
+				buf[n++] = c;
+			}
+			write((char) SDA.QUOTE);
+		}
+
+
+		@Override
+		void drain() throws IOException {
+			if (n > 0) output.write(buf, 0, n);
+			n = 0;
+		}
+
+
+		@Override
+		void flush() throws IOException {
+			drain(); output.flush();
+		}
+
+
+		@Override
+		void close() throws IOException {
+			try { drain(); } finally { output.close(); }
+		}
+	}
+
+
+	/**
+	 * A buffer for bytes in UTF-8 encoding, which are written to an output
+	 * stream, a byte channel or a byte buffer (exactly one of which is set). An
+	 * unpaired surrogate is encoded as a question mark, like an output stream
+	 * writer does.
+	 */
+	private static final class Bytes extends OutputBuffer {
+
+		private static final int BUFSIZE = Compression.BUFSIZE; // the size of the buffer, for large writes
+
+		private final OutputStream stream; // the output stream, or null
+		private final WritableByteChannel channel; // the byte channel, or null
+		private final ByteBuffer target; // the byte buffer, or null
+		private final byte[] buf = new byte[BUFSIZE]; // the byte buffer
+		private final ByteBuffer wrapper = ByteBuffer.wrap(buf); // to write to a channel
+		private int n = 0; // the number of bytes in the buffer
+
+
+		Bytes(OutputStream stream, WritableByteChannel channel, ByteBuffer target) {
+			this.stream = stream; this.channel = channel; this.target = target;
+		}
+
+
+		@Override
+		void write(char c) throws IOException {
+			if (n == buf.length) drain();
+			buf[n++] = (byte) c;
+		}
+
+
+		@Override
+		void write(String s) throws IOException {
+			final int length = s.length();
+			for (int i = 0; i < length; ) {
+				if (n == buf.length) drain();
+				final int end = Math.min(length, i + buf.length - n);
+				while (i < end) buf[n++] = (byte) s.charAt(i++);
+			}
+		}
+
+
+		/*
+		 * Plain ASCII is copied in a tight loop, as far as the buffer allows,
+		 * leaving room for any other character, which is then encoded.
+		 */
+		@Override
+		void quote(String value) throws IOException {
+
+			write((char) SDA.QUOTE);
+			final int length = value.length();
+			final byte[] b = buf;
+			for (int i = 0; i < length; ) {
+				if (b.length - n < 8) drain();
+				final int end = Math.min(length, i + b.length - n - 4);
+				char c = 0;
+				while (i < end && (c = value.charAt(i)) < 0x80 && c != SDA.QUOTE && c != SDA.BSLASH) {
+					b[n++] = (byte) c; ++i;
+				}
+				if (i == end) continue;
+
+				++i; // the character to escape or encode
+				if (c < 0x80) {
+					b[n++] = (byte) SDA.BSLASH; b[n++] = (byte) c;
+				}
+				else if (c < 0x800) {
+					b[n++] = (byte) (0xC0 | c >> 6); b[n++] = (byte) (0x80 | c & 0x3F);
+				}
+				else if (Character.isHighSurrogate(c) && i < length
+						&& Character.isLowSurrogate(value.charAt(i))) {
+					final int cp = Character.toCodePoint(c, value.charAt(i++));
+					b[n++] = (byte) (0xF0 | cp >> 18); b[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+					b[n++] = (byte) (0x80 | cp >> 6 & 0x3F); b[n++] = (byte) (0x80 | cp & 0x3F);
+				}
+				else if (Character.isSurrogate(c)) b[n++] = '?';
+				else {
+					b[n++] = (byte) (0xE0 | c >> 12); b[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+					b[n++] = (byte) (0x80 | c & 0x3F);
+				}
+			}
+			write((char) SDA.QUOTE);
+		}
+
+
+		@Override
+		void drain() throws IOException {
+			if (n > 0) {
+				if (stream != null) stream.write(buf, 0, n);
+				else if (channel != null) {
+					wrapper.clear().limit(n);
+					while (wrapper.hasRemaining()) channel.write(wrapper);
+				}
+				else target.put(buf, 0, n);
+			}
+			n = 0;
+		}
+
+
+		@Override
+		void flush() throws IOException {
+			drain(); if (stream != null) stream.flush();
+		}
+
+
+		@Override
+		void close() throws IOException {
+			try { drain(); } finally {
+				if (stream != null) stream.close();
+				else if (channel != null) channel.close();
+			}
+		}
+	}
+
+}
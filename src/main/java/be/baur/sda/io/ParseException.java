@@ -9,6 +9,10 @@ package be.baur.sda.io;
 @SuppressWarnings("serial")
 public abstract class ParseException extends java.text.ParseException {
 
+	private final int errorLine; // the line of the error, 0 if unknown
+	private final int errorColumn; // the column of the error, 0 if unknown
+	
+	
 	/**
 	 * Creates a parse exception with an error message and offset (counted in
 	 * number of characters read up to the point where the error occurred).
@@ -17,7 +21,48 @@ public abstract class ParseException extends java.text.ParseException {
 	 * @param errorOffset the error position, non-negative integer
 	 */
 	public ParseException(String message, int errorOffset) {
+		this(message, errorOffset, 0, 0);
+	}
+
+
+	/**
+	 * Creates a parse exception with an error message, offset, line and column.
+	 * 
+	 * @param message     an error message
+	 * @param errorOffset the error position, non-negative integer
+	 * @param errorLine   the line of the error, 0 if unknown
+	 * @param errorColumn the column of the error, 0 if unknown
+	 * @see #getErrorLine
+	 * @see #getErrorColumn
+	 */
+	public ParseException(String message, int errorOffset, int errorLine, int errorColumn) {
 		super(message, errorOffset < 0 ? 0 : errorOffset); 
+		this.errorLine = errorLine < 0 ? 0 : errorLine;
+		this.errorColumn = errorColumn < 0 ? 0 : errorColumn;
+	}
+
+
+	/**
+	 * Returns the line of the error, where the first line is 1. Lines are ended
+	 * by a line feed. This method returns 0 if the line is not known.
+	 * 
+	 * @return a non-negative integer
+	 */
+	public int getErrorLine() {
+		return errorLine;
+	}
+
+
+	/**
+	 * Returns the column of the error, which is the position of the error (in
+	 * characters) within its line, where the first column is 1. This method
+	 * returns 0 if the column is not known, or if the error is at the very start
+	 * of the input.
+	 * 
+	 * @return a non-negative integer
+	 */
+	public int getErrorColumn() {
+		return errorColumn;
 	}
 
 
@@ -1,9 +1,11 @@
 package be.baur.sda.io;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
@@ -32,7 +34,9 @@ public interface Parser<T extends Node> {
 
 
 	/**
-	 * Creates a node from a file with SDA content.
+	 * Creates a node from a file with SDA content. A file that is compressed with
+	 * GZIP or DEFLATE (in ZLIB format) is decompressed while it is read. This is
+	 * detected from the content of the file, not from its name.
 	 * 
 	 * @param file an input file, not null
 	 * @return a (root) node, never null
@@ -43,8 +47,8 @@ public interface Parser<T extends Node> {
 
 		Objects.requireNonNull(file, "input file must not be null");
 		try (
-			FileInputStream fs = new FileInputStream(file);
-			Reader is = new InputStreamReader(fs, "UTF-8");
+			InputStream fs = new BufferedInputStream(new FileInputStream(file), Compression.BUFSIZE);
+			Reader is = new InputStreamReader(Compression.of(fs).decompress(fs), "UTF-8");
 			Reader br = new BufferedReader(is);
 		) {
 			return parse(br);
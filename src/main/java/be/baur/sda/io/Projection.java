@@ -0,0 +1,80 @@
+package be.baur.sda.io;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import be.baur.sda.SDA;
+
+/**
+ * A {@code Projection} is a tree of node names compiled from a set of paths,
+ * like "/addressbook/contact/firstname". It tells the reader which nodes to
+ * keep at each level; all other nodes are skipped. A node at the end of a path
+ * is kept with all its content, and so are the nodes on the way to it.
+ *
+ * @see SDAParser#setProjection
+ */
+final class Projection {
+
+	/** A projection that keeps all nodes. */
+	static final Projection ALL = new Projection();
+
+	/** A projection that keeps no nodes. */
+	static final Projection NONE = new Projection();
+
+	private final Map<String, Projection> nodes = new HashMap<>(); // the nodes to keep
+
+
+	private Projection() {}
+
+
+	/**
+	 * Compiles a projection from a collection of paths without indexes. Returns
+	 * null if the collection is null or empty.
+	 *
+	 * @throws IllegalArgumentException if a path is invalid
+	 */
+	static Projection compile(Collection<String> paths) {
+
+		if (paths == null || paths.isEmpty()) return null;
+
+		final Projection projection = new Projection();
+		for (String path : paths) {
+			if (path == null || ! path.startsWith("/"))
+				throw new IllegalArgumentException("invalid path (" + path + ")");
+
+			final String[] names = path.substring(1).split("/", -1);
+			Projection p = projection;
+			for (int i = 0; i < names.length && p != ALL; i++) {
+				if (! SDA.isName(names[i]))
+					throw new IllegalArgumentException("invalid path (" + path + ")");
+				final boolean last = (i == names.length - 1);
+				Projection next = p.nodes.get(names[i]);
+				if (last) next = ALL; // a shorter path wins
+				else if (next == null) next = new Projection();
+				p.nodes.put(names[i], next); p = next;
+			}
+		}
+		return projection;
+	}
+
+
+	/**
+	 * Returns the projection for the content of a node with the specified name,
+	 * or null if the node is not to be kept.
+	 */
+	Projection get(String name) {
+		return (this == ALL) ? ALL : nodes.get(name);
+	}
+
+
+	/**
+	 * Returns the projection for the content of the root node, which is always
+	 * kept, even if nothing in it is.
+	 */
+	Projection root(String name) {
+		final Projection p = get(name);
+		return (p == null) ? NONE : p;
+	}
+
+}
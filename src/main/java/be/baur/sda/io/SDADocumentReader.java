@@ -0,0 +1,119 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import be.baur.sda.DataNode;
+
+/**
+ * An {@code SDADocumentReader} reads a sequence of documents from a single
+ * input stream, and returns their root nodes one at a time. For example, the
+ * input:
+ *
+ * <pre>
+ * event { type "login" }
+ * event { type "logout" }
+ * </pre>
+ *
+ * yields two 'event' nodes, rather than an "excess input" error. Documents may
+ * be separated by white-space (or nothing at all), and the input may be empty.
+ * All documents are read with the same scanner and buffer, so there is no
+ * per-document setup.
+ * <p>
+ * The document reader applies the same syntax rules as the {@code SDAParser},
+ * and throws an {@code SDAParseException} with the same message. Error offsets
+ * are counted from the start of the input, not from the start of a document.
+ * A document reader is not thread-safe.
+ *
+ * @see SDAParser#documents(Reader)
+ */
+public final class SDADocumentReader {
+
+	private final SDAReader reader; // the reader for the input stream
+	private DataNode document; // the next document, null if not read yet
+
+
+	/**
+	 * Creates a document reader for a character input stream in SDA format.
+	 *
+	 * @param input an input stream, not null
+	 */
+	public SDADocumentReader(Reader input) {
+		this(new SDAReader(input));
+	}
+
+
+	// Creates a document reader for an SDA reader.
+	SDADocumentReader(SDAReader reader) {
+		this.reader = reader;
+	}
+
+
+	/**
+	 * Returns true if there are more documents. This method reads the next
+	 * document from the input if it was not read yet.
+	 *
+	 * @return true or false
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public boolean hasNext() throws IOException, SDAParseException {
+		return document != null || (document = read()) != null;
+	}
+
+
+	/**
+	 * Returns the (root node of the) next document.
+	 *
+	 * @return a node, not null
+	 * @throws IOException            if an I/O operation failed
+	 * @throws SDAParseException      if an SDA parsing error occurs
+	 * @throws NoSuchElementException if there are no more documents
+	 */
+	public DataNode next() throws IOException, SDAParseException {
+		if (! hasNext()) throw new NoSuchElementException("no more documents");
+		final DataNode next = document; document = null;
+		return next;
+	}
+
+
+	/*
+	 * Private helper to build the next document from reader events. Returns null
+	 * if the end of input is reached without finding another document.
+	 */
+	private DataNode read() throws IOException, SDAParseException {
+
+		if (! reader.hasDocument()) return null;
+
+		DataNode node = null; // the parent serves as a stack
+		while (true) {
+			switch (reader.next()) {
+			case START_NODE:
+				final DataNode child = reader.node();
+				if (node != null) node.add(child);
+				node = child; break;
+			case END_NODE:
+				final DataNode parent = node.getParent();
+				if (parent == null) return node; // the end of the document
+				node = parent; break;
+			default: // value has been set already
+			}
+		}
+	}
+
+
+	/**
+	 * Returns a sequential stream of the remaining documents. Since a stream
+	 * cannot throw checked exceptions, an I/O exception is wrapped in an unchecked
+	 * I/O exception, and so is an SDA parse exception (which is then the cause of
+	 * the wrapped exception).
+	 *
+	 * @return a stream of nodes
+	 */
+	public Stream<DataNode> stream() {
+		return NodeStream.of(this::hasNext, this::next);
+	}
+
+}
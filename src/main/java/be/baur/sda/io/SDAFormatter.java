@@ -3,9 +3,14 @@
  */
 package be.baur.sda.io;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Objects;
 
 import be.baur.sda.DataNode;
@@ -25,6 +30,12 @@ import be.baur.sda.SDA;
  * }
  * </pre>
  * 
+ * A {@link #compact() compact} formatter writes only the white space that the
+ * grammar requires, which is none at all, as in
+ * <code>addressbook{contact"1"{firstname"Alice"phonenumber"06-11111111"}}</code>.
+ * This is meant for machines rather than people, and is read by the parser
+ * like any other SDA content.
+ * <p>
  * Once created, this formatter is stateless and reusable.<br>
  * <br>
  * @see DataNode
@@ -32,11 +43,13 @@ import be.baur.sda.SDA;
 public final class SDAFormatter implements Formatter<DataNode> {
 	
 	private final String indent;  // the string used for indentation
+	private final String[] indents; // the indentation for the first depths
+	private final boolean compact; // whether to omit all white space
 	
 	
 	/** Creates a formatter which uses a tab character for indentation. */
 	public SDAFormatter() {
-		this.indent = "\t";
+		this(false);
 	}
 	
 	
@@ -51,6 +64,25 @@ public final class SDAFormatter implements Formatter<DataNode> {
 		if (depth < 0) throw 
 			new IllegalArgumentException("invalid indentation depth (" + depth + ")");
 		this.indent = new String(new char[depth]).replace("\0", " ");
+		this.indents = OutputBuffer.indents(indent); this.compact = false;
+	}
+	
+	
+	// Private constructor, for a tab indented or a compact formatter.
+	private SDAFormatter(boolean compact) {
+		this.indent = compact ? "" : "\t"; this.compact = compact;
+		this.indents = OutputBuffer.indents(indent);
+	}
+	
+	
+	/**
+	 * Returns a formatter which writes compact SDA content, without any white
+	 * space. For example: <code>node"1"{node2{empty1""empty2{}}}</code>.
+	 * 
+	 * @return a compact formatter
+	 */
+	public static SDAFormatter compact() {
+		return new SDAFormatter(true);
 	}
 	
 	
@@ -62,37 +94,160 @@ public final class SDAFormatter implements Formatter<DataNode> {
 	public void format(final Writer output, DataNode node) throws IOException {
 
 		Objects.requireNonNull(output, "output writer must not be null");
-		if (node != null) {
-			format(output, node, "");
-			output.flush();
+		if (node != null) write(OutputBuffer.of(output), node);
+	}
+
+
+	/**
+	 * Serialize a data node in SDA format and write it to a byte output stream in
+	 * UTF-8 encoding. Characters are encoded directly into a buffer, which is
+	 * written in large blocks, so no charset encoder or writer is needed. This
+	 * method will ignore a null node reference (and write nothing). It flushes
+	 * but does not close the output stream.
+	 * 
+	 * @param output an output stream, not null
+	 * @param node   the node to be rendered
+	 * @throws IOException if an I/O operation failed
+	 */
+	public void format(final OutputStream output, DataNode node) throws IOException {
+
+		Objects.requireNonNull(output, "output stream must not be null");
+		if (node != null) write(OutputBuffer.of(output), node);
+	}
+
+
+	/**
+	 * Serialize a data node in SDA format and write it to a byte channel (like a
+	 * {@code FileChannel}) in UTF-8 encoding, like the method for output streams.
+	 * This method does not close the channel.
+	 * 
+	 * @param output a byte channel, not null
+	 * @param node   the node to be rendered
+	 * @throws IOException if an I/O operation failed
+	 */
+	public void format(final WritableByteChannel output, DataNode node) throws IOException {
+
+		Objects.requireNonNull(output, "output channel must not be null");
+		if (node != null) write(OutputBuffer.of(output), node);
+	}
+
+
+	/**
+	 * Serialize a data node in SDA format and put it in a byte buffer in UTF-8
+	 * encoding, from its current position. This allows a buffer to be re-used
+	 * for many nodes.
+	 * 
+	 * @param output a byte buffer, not null
+	 * @param node   the node to be rendered
+	 * @throws IOException              if an I/O operation failed
+	 * @throws java.nio.BufferOverflowException if the output does not fit in the
+	 *                                  buffer, which may then hold part of it
+	 */
+	public void format(final ByteBuffer output, DataNode node) throws IOException {
+
+		Objects.requireNonNull(output, "output buffer must not be null");
+		if (node != null) write(OutputBuffer.of(output), node);
+	}
+
+
+	/**
+	 * Serializes a data node and writes it to a file in UTF-8 encoding. This
+	 * method writes to the file channel directly, or to a compressed stream if
+	 * the file name ends with ".gz", ".zz" or ".deflate".
+	 */
+	@Override
+	public void format(final File file, DataNode node) throws IOException {
+
+		Objects.requireNonNull(file, "input file must not be null");
+		final Compression compression = Compression.of(file.getName());
+		try (FileOutputStream fs = new FileOutputStream(file)) {
+			if (compression == Compression.NONE) format(fs.getChannel(), node);
+			else try (OutputStream cs = compression.compress(fs)) {
+				format(cs, node);
+			}
+		} catch (Exception e) {
+			throw new IOException("error writing to " + file, e);
 		}
 	}
 
 
-	/* Private helper to create SDA content. 
-	 * */
-	private void format(Writer output, DataNode node, String indent) throws IOException {
-		
-		final boolean isLeaf = node.isLeaf();
-		
-		output.append(indent).append(node.getName());
-		
-		if (! node.getValue().isEmpty() || isLeaf)
-			output.append(" ").append((char) SDA.QUOTE)
-			  .append(SDA.encode(node.getValue()))
-			  .append((char) SDA.QUOTE);
-	
-		if (! isLeaf) {
-			List<DataNode> nodes = node.nodes();
-			boolean empty = nodes.isEmpty();
-		
-			output.append(" ").append((char)SDA.LBRACE).append((empty ? " " : "\n"));
-			if (! empty) for (DataNode child : nodes) 
-				format(output, child, indent + this.indent); // recursive call
-			output.append(empty ? "" : indent).append((char) SDA.RBRACE);
+	// Private helper to write a node to a buffer, which is flushed.
+	private void write(OutputBuffer output, DataNode node) throws IOException {
+		if (compact) compact(output, node); else format(output, node);
+		output.flush();
+	}
+
+
+	/*
+	 * Private helper to create SDA content, in document order. The parents of the
+	 * current node are kept on a stack, with the index of their next child, so
+	 * the depth of a node is the size of the stack.
+	 */
+	private void format(OutputBuffer output, DataNode node) throws IOException {
+
+		DataNode[] parents = new DataNode[16]; int[] next = new int[16]; int depth = 0;
+		while (true) {
+			final boolean isLeaf = node.isLeaf();
+			final String value = node.getValue();
+
+			output.indent(indents, depth); output.write(node.getName());
+			if (! value.isEmpty() || isLeaf) {
+				output.write(' '); output.quote(value);
+			}
+
+			if (! isLeaf && ! node.nodes().isEmpty()) {
+				output.write(" {\n");
+				if (depth == parents.length) {
+					parents = Arrays.copyOf(parents, depth << 1); next = Arrays.copyOf(next, depth << 1);
+				}
+				parents[depth] = node; next[depth++] = 0;
+			}
+			else {
+				if (! isLeaf) output.write(" { }");
+				output.write('\n');
+			}
+
+			while (depth > 0 && next[depth - 1] == parents[depth - 1].nodes().size()) {
+				output.indent(indents, --depth); output.write((char) SDA.RBRACE); output.write('\n');
+			}
+			if (depth == 0) return;
+			node = parents[depth - 1].<DataNode>nodes().get(next[depth - 1]++);
+		}
+	}
+
+
+
+	/*
+	 * Private helper to create compact SDA content, in document order, with the
+	 * parents of the current node on a stack as in the above.
+	 */
+	private static void compact(OutputBuffer output, DataNode node) throws IOException {
+
+		DataNode[] parents = new DataNode[16]; int[] next = new int[16]; int depth = 0;
+		while (true) {
+			final boolean isLeaf = node.isLeaf();
+			final String value = node.getValue();
+
+			output.write(node.getName());
+			if (! value.isEmpty() || isLeaf) output.quote(value);
+
+			if (! isLeaf) {
+				output.write((char) SDA.LBRACE);
+				if (node.nodes().isEmpty()) output.write((char) SDA.RBRACE);
+				else {
+					if (depth == parents.length) {
+						parents = Arrays.copyOf(parents, depth << 1); next = Arrays.copyOf(next, depth << 1);
+					}
+					parents[depth] = node; next[depth++] = 0;
+				}
+			}
+
+			while (depth > 0 && next[depth - 1] == parents[depth - 1].nodes().size()) {
+				--depth; output.write((char) SDA.RBRACE);
+			}
+			if (depth == 0) return;
+			node = parents[depth - 1].<DataNode>nodes().get(next[depth - 1]++);
 		}
-		
-		output.append("\n");
 	}
 
 }
@@ -0,0 +1,48 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+
+/**
+ * An {@code SDAHandler} receives callbacks from an {@code SDAParser} as it
+ * processes SDA content, in a push-style (SAX-like) fashion. This allows a
+ * client to process input without creating a node tree. For example, the input:
+ *
+ * <pre>
+ * greeting { message "hello" }
+ * </pre>
+ *
+ * results in startNode (greeting, null), startNode (message, "hello"), endNode
+ * (message) and endNode (greeting).
+ *
+ * @see SDAParser#parse(java.io.Reader, SDAHandler)
+ */
+public interface SDAHandler {
+
+	/**
+	 * Receives notification of the start of a node.
+	 *
+	 * @param name  the node name, not null
+	 * @param value the node value, null if the node has no simple content
+	 * @throws IOException to abort parsing
+	 */
+	void startNode(String name, String value) throws IOException;
+
+
+	/**
+	 * Receives notification of the end of a node.
+	 *
+	 * @param name the node name, not null
+	 * @throws IOException to abort parsing
+	 */
+	void endNode(String name) throws IOException;
+
+
+	/**
+	 * Receives notification of an SDA parsing error. The parser will throw the
+	 * exception when this method returns. The default method does nothing.
+	 *
+	 * @param e the exception that will be thrown
+	 */
+	default void error(SDAParseException e) {}
+
+}
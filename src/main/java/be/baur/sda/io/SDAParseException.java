@@ -19,4 +19,18 @@ public final class SDAParseException extends ParseException {
 		super(message, errorOffset);
 	}
 
+
+	/**
+	 * Creates an SDA parse exception with an error message, offset, line and
+	 * column.
+	 * 
+	 * @param message     an error message
+	 * @param errorOffset the position where the error was found
+	 * @param errorLine   the line of the error, 0 if unknown
+	 * @param errorColumn the column of the error, 0 if unknown
+	 */
+	public SDAParseException(String message, int errorOffset, int errorLine, int errorColumn) {
+		super(message, errorOffset, errorLine, errorColumn);
+	}
+
 }
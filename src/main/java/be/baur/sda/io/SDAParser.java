@@ -1,11 +1,39 @@
 package be.baur.sda.io;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import be.baur.sda.DataNode;
 import be.baur.sda.SDA;
+import be.baur.sda.util.Result;
+import be.baur.sda.util.Results;
 
 
 /**
@@ -32,9 +60,137 @@ import be.baur.sda.SDA;
  */
 public final class SDAParser implements Parser<DataNode> {
 
+	private int maxDepth = Integer.MAX_VALUE; // maximum depth of a node
+	private boolean deferred = false; // whether to defer decoding of values
+	private Set<String> paths = Collections.emptySet(); // the paths of the projection
+	private Projection projection = null; // the compiled projection, null if none
+	private boolean offsets = false; // whether to set the source offset of nodes
+	
+	
+	/**
+	 * Sets the maximum depth of a node, where the root node has depth 1. Input
+	 * that is nested deeper causes an SDA parse exception. By default, there is no
+	 * limit, and the depth is bounded only by available memory.
+	 * 
+	 * @param depth a maximum depth
+	 * @throws IllegalArgumentException if depth is less than 1
+	 */
+	public void setMaxDepth(int depth) {
+		if (depth < 1) throw 
+			new IllegalArgumentException("invalid maximum depth (" + depth + ")");
+		this.maxDepth = depth;
+	}
+
+
+	/**
+	 * Returns the maximum depth of a node.
+	 * 
+	 * @return a positive integer
+	 * @see #setMaxDepth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	
+	/**
+	 * Sets whether decoding of node values is deferred until they are first
+	 * requested. This is off by default. When switched on, the parser reads all
+	 * input into memory, and nodes refer to their (encoded) value in that input
+	 * rather than holding a string. This saves time and garbage when only some of
+	 * the values are used, at the expense of retaining the input for as long as
+	 * nodes with unused values exist.
+	 * 
+	 * @param deferred true or false
+	 * @see DataNode#setValue(CharSequence)
+	 */
+	public void setDeferredValues(boolean deferred) {
+		this.deferred = deferred;
+	}
+
+
+	/**
+	 * Returns whether decoding of node values is deferred.
+	 * 
+	 * @return true or false
+	 * @see #setDeferredValues
+	 */
+	public boolean isDeferredValues() {
+		return deferred;
+	}
+
+	
+	/**
+	 * Sets a projection, which is a collection of paths to the nodes of interest,
+	 * like "/addressbook/contact/firstname". Paths are like those returned by
+	 * {@code Node.path()}, but without indexes. The parser keeps only the nodes at
+	 * the end of these paths (with all their content) and the nodes on the way to
+	 * them, and skips everything else by counting quotes and braces, without
+	 * creating names or values. The root node is always kept, even if nothing in
+	 * it is.
+	 * <p>
+	 * Note that syntax errors in skipped content go undetected, except for an
+	 * unexpected end of input. By default, there is no projection, and all nodes
+	 * are kept.
+	 * 
+	 * @param paths a collection of paths, null or empty for no projection
+	 * @throws IllegalArgumentException if a path is invalid
+	 */
+	public void setProjection(Collection<String> paths) {
+		this.projection = Projection.compile(paths);
+		this.paths = (projection == null) ? Collections.emptySet()
+			: Collections.unmodifiableSet(new LinkedHashSet<>(paths));
+	}
+
+
+	/**
+	 * Returns the paths of the projection.
+	 * 
+	 * @return an unmodifiable set, empty if there is no projection
+	 * @see #setProjection
+	 */
+	public Set<String> getProjection() {
+		return paths;
+	}
+
+	
+	/**
+	 * Sets whether the parser records the position of each node in the input,
+	 * which can then be used to point to the source of a node. This is off by
+	 * default.
+	 * 
+	 * @param offsets true or false
+	 * @see DataNode#getSourceOffset
+	 */
+	public void setSourceOffsets(boolean offsets) {
+		this.offsets = offsets;
+	}
+
+
+	/**
+	 * Returns whether the parser records the position of each node.
+	 * 
+	 * @return true or false
+	 * @see #setSourceOffsets
+	 */
+	public boolean isSourceOffsets() {
+		return offsets;
+	}
+
+	
+	/*
+	 * Private helper to apply the settings of this parser to a reader.
+	 */
+	private SDAReader configure(SDAReader reader) {
+		reader.setMaxDepth(maxDepth); reader.setProjection(projection); 
+		reader.setSourceOffsets(offsets); return reader;
+	}
+
+	
 	/**
 	 * Creates a data node from a character input stream in SDA format. The parser
-	 * is re-usable and thread-safe, and can be run as a singleton instance.
+	 * is re-usable and thread-safe, and can be run as a singleton instance. The
+	 * parser is not recursive, so it can handle documents of any depth.
 	 * 
 	 * @throws SDAParseException if an SDA parsing error occurs
 	 */
@@ -42,142 +198,626 @@ public final class SDAParser implements Parser<DataNode> {
 	public DataNode parse(Reader input) throws IOException, SDAParseException {
 
 		Objects.requireNonNull(input, "input reader must not be null");
-		final Scanner scanner = new Scanner(input);
+		final SDAReader reader = configure(deferred 
+			? new SDAReader(Scanner.readFully(input), true, false) : new SDAReader(input));
+		
+		return build(reader, null, null);
+	}
+
+	
+	/**
+	 * Creates a data node from a string in SDA format. The string is scanned in
+	 * memory by index, rather than read through a (synchronized) string reader.
+	 */
+	@Override
+	public DataNode parse(String input) throws IOException, SDAParseException {
+		return parse((CharSequence) input);
+	}
+
+	
+	/**
+	 * Creates a data node from a character sequence in SDA format, like a string
+	 * or a string builder. The characters are copied once and scanned in memory.
+	 * 
+	 * @param input a character sequence, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(CharSequence input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input string must not be null");
+		final int length = input.length(); final char[] chars = new char[length];
+		if (input instanceof String) 
+			((String) input).getChars(0, length, chars, 0);
+		else if (input instanceof StringBuilder) 
+			((StringBuilder) input).getChars(0, length, chars, 0);
+		else for (int i = 0; i < length; i++) 
+			chars[i] = input.charAt(i);
 		
-		scanner.advance(true); // advance to the first non-whitespace character
-		DataNode node = parseNode(scanner); // and get the root node
+		return parse(chars, length);
+	}
 
-		if (scanner.c != Scanner.EOF)
-			throw exception(scanner.p, "excess input after root node");
+	
+	/**
+	 * Creates a data node from a character array in SDA format, which is scanned
+	 * in memory. If values are deferred, the array is copied first, so it may be
+	 * modified afterwards.
+	 * 
+	 * @param input a character array, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(char[] input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input array must not be null");
+		return parse(deferred ? input.clone() : input, input.length);
+	}
+
+	
+	/**
+	 * Creates a data node from a byte array with SDA content in UTF-8 encoding.
+	 * The bytes are decoded in a single pass and scanned in memory.
+	 * 
+	 * @param input a byte array, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(byte[] input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input array must not be null");
+		return parse(ByteBuffer.wrap(input));
+	}
+
+	
+	/**
+	 * Creates a data node from the remaining bytes in a byte buffer, with SDA
+	 * content in UTF-8 encoding. The bytes are decoded in a single pass and
+	 * scanned in memory. The position of the buffer is not changed.
+	 * 
+	 * @param input a byte buffer, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(ByteBuffer input) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input buffer must not be null");
+		final char[] chars = new char[input.remaining()]; // a byte yields at most one char
+		final UTF8Reader reader = new UTF8Reader(input.duplicate()); int n = 0, r;
+		while ((r = reader.read(chars, n, chars.length - n)) > 0) n += r;
+		
+		return parse(chars, n);
+	}
+
+	
+	/**
+	 * Creates a data node from a byte input stream with SDA content in UTF-8
+	 * encoding. The stream is read in blocks that are decoded straight into the
+	 * buffer of the scanner, rather than through an input stream reader.
+	 * 
+	 * @param input an input stream, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(InputStream input) throws IOException, SDAParseException {
 
-		return node;
+		Objects.requireNonNull(input, "input stream must not be null");
+		return parse(new UTF8Reader(input));
 	}
 
 	
-	// Recursive helper to get nodes from the input, follows straight from the EBNF.
-	private static DataNode parseNode(final Scanner scanner) throws SDAParseException, IOException {
+	/**
+	 * Creates a data node from a character input stream in SDA format, recovering
+	 * from SDA parsing errors rather than throwing them. Each error is added to
+	 * the specified results, and holds the exception with the error offset.
+	 * <p>
+	 * After an error, the parser skips input up to the start of the next node or
+	 * the end of the enclosing node, and continues from there. A node in which an
+	 * error occurs is dropped (with all its content), but the well-formed parts
+	 * of the input are kept. An unexpected end of input ends all open nodes, and
+	 * excess input after the root node is ignored. This allows all problems in a
+	 * (large) input to be found in a single pass.
+	 * 
+	 * @param input  an input stream, not null
+	 * @param errors the results to add errors to, not null
+	 * @return a (root) node, or null if none could be recovered
+	 * @throws IOException if an I/O operation failed
+	 */
+	public DataNode parse(Reader input, Results<SDAParseException> errors) throws IOException {
 
-		final DataNode node;
+		Objects.requireNonNull(input, "input reader must not be null");
+		Objects.requireNonNull(errors, "results must not be null");
+		final SDAReader reader = configure(deferred 
+			? new SDAReader(Scanner.readFully(input), true, false) : new SDAReader(input));
+		reader.setRecovery(errors);
+		
 		try {
-			node = new DataNode( scanner.getNodeName() ); // create a new node
+			return build(reader, null, null);
 		} 
-		catch (IllegalArgumentException e) { // should not happen
-			throw exception(scanner.p, e.getMessage());
+		catch (SDAParseException e) { // this cannot happen
+			throw new IllegalStateException(e);
 		}
+	}
 
-		String value = null;
-		if (scanner.c == SDA.QUOTE) {  // simple content ahead
-			value = scanner.getQuotedString();
-			node.setValue( value );
+	
+	/*
+	 * Private helper to build nodes from reader events, starting in the context of
+	 * the specified node (null for the top level). Top level nodes are added to
+	 * the list (if not null), and the last one is returned.
+	 */
+	private static DataNode build(SDAReader reader, DataNode node, List<DataNode> nodes) 
+			throws IOException, SDAParseException {
+		
+		DataNode top = null; // the parent serves as a stack
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case START_NODE:
+				final DataNode child = reader.node();
+				if (node != null) node.add(child); 
+				else { top = child; if (nodes != null) nodes.add(child); }
+				node = child; break;
+			case END_NODE:
+				node = node.getParent(); break;
+			default: // value has been set already
+			}
 		}
+		
+		return top;
+	}
 
-		if (scanner.c == SDA.LBRACE) { // complex content ahead
 	
-			scanner.advance(true);  // skip left brace and whitespace
+	private static final int MINCHUNK = 1 << 16; // minimum size of a parallel chunk
+	
+	/**
+	 * Creates a data node from a character input stream in SDA format, parsing the
+	 * child nodes of the root node concurrently. The input is read into memory and
+	 * pre-scanned to split the content of the root node into chunks of child
+	 * nodes, which are then parsed by the specified pool and added to the root node
+	 * in order. This pays off for large documents with many independent children.
+	 * <p>
+	 * The result is identical to that of {@link #parse(Reader)}. If the input is
+	 * not valid, the exception is the same as well (in that case, the input is
+	 * parsed sequentially to find the first error).
+	 * 
+	 * @param input an input stream, not null
+	 * @param pool  a fork-join pool, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(Reader input, ForkJoinPool pool) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(input, "input reader must not be null");
+		Objects.requireNonNull(pool, "fork-join pool must not be null");
+		
+		final Scanner scanner = Scanner.readFully(input);
+		final char[] chars = scanner.buffer(); final int length = scanner.limit();
+		final SDAReader reader = configure(new SDAReader(scanner, deferred, false));
+		
+		reader.next(); // get the start of the root node
+		final DataNode root = reader.node();
+		if (reader.isLeaf()) {
+			build(reader, root, null); return root;
+		}
+		final Projection scope = (projection == null) ? null : projection.root(root.getName());
+		
+		final int[] cuts = (maxDepth > 1) ? split(chars, scanner.index(), length, 
+			Math.max(MINCHUNK, (length - scanner.index()) / (pool.getParallelism() * 4))) : null;
+		if (cuts == null) { // no point in going parallel, so continue in sequence
+			build(reader, root, null); return root;
+		}
+		for (int i = cuts[cuts.length-1] + 1; i < length; i++)
+			if (! Character.isWhitespace(chars[i])) // excess input after root node
+				return parse(chars, length);
+		
+		final List<Callable<List<DataNode>>> tasks = new ArrayList<>();
+		for (int i = 1; i < cuts.length; i++) {
+			final int from = cuts[i-1], to = cuts[i];
+			tasks.add(() -> {
+				final SDAReader r = new SDAReader(new Scanner(chars, from, to), deferred, true);
+				r.setMaxDepth(maxDepth - 1); // children are one level down
+				r.setProjection(scope); r.setSourceOffsets(offsets);
+				final List<DataNode> nodes = new ArrayList<>();
+				build(r, null, nodes); return nodes;
+			});
+		}
+		
+		try {
+			for (Future<List<DataNode>> result : pool.invokeAll(tasks)) 
+				for (DataNode child : result.get()) root.add(child);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("parsing was interrupted");
+		}
+		catch (ExecutionException e) { // parse in sequence to report the first error
+			return parse(chars, length);
+		}
+		
+		return root;
+	}
+	
+	
+	// Private helper to parse input in memory, in sequence.
+	private DataNode parse(char[] chars, int length) throws IOException, SDAParseException {
+		return build(configure(new SDAReader(new Scanner(chars, length), deferred, false)), null, null);
+	}
+	
+	
+	/*
+	 * Private helper to find chunks of child nodes, by scanning for structure only.
+	 * Starting inside the root node, this returns the start of each chunk, followed
+	 * by the position of the right brace that closes the root node. Chunks are at
+	 * least the specified size, and end right after a child node. Returns null if
+	 * the structure is not sound, or if there would be less than two chunks.
+	 */
+	private static int[] split(final char[] chars, final int start, final int length, final int size) {
+		
+		int[] cuts = new int[16]; int n = 0; cuts[n++] = start;
+		int depth = 1, next = start + size; // depth is 1 inside the root node
+		
+		for (int i = start; i < length; ) {
+			char c = chars[i++]; boolean cut = false;
 			
-			node.add(null);  // initialize child set, recursively add nodes
-			while (scanner.c != SDA.RBRACE) {
-				node.add( parseNode(scanner) );
+			if (c == SDA.QUOTE) { // skip a value, and see if a node ends here
+				while (i < length && (c = chars[i]) != SDA.QUOTE) i += (c == SDA.BSLASH) ? 2 : 1;
+				if (i++ >= length) return null;
+				if (depth == 1 && i >= next) {
+					int k = i; while (k < length && Character.isWhitespace(chars[k])) ++k;
+					cut = (k < length && chars[k] != SDA.LBRACE);
+				}
 			}
+			else if (c == SDA.LBRACE) ++depth;
+			else if (c == SDA.RBRACE) {
+				if (--depth == 0) { // the end of the root node
+					if (n < 2) return null;
+					if (n == cuts.length) cuts = Arrays.copyOf(cuts, n + 1);
+					cuts[n++] = i - 1; return Arrays.copyOf(cuts, n);
+				}
+				cut = (depth == 1 && i >= next);
+			}
+			
+			if (cut) { // a child node ends here
+				if (n == cuts.length) cuts = Arrays.copyOf(cuts, n << 1);
+				cuts[n++] = i; next = i + size;
+			}
+		}
+		
+		return null; // the root node does not end
+	}
+	
+	
+	/**
+	 * Creates a data node from a file with SDA content. This method maps the file
+	 * into memory and decodes it directly, rather than reading it through a chain
+	 * of input stream readers. A compressed file is decompressed as it is read,
+	 * and anything that is not a regular file is read the default way.
+	 * 
+	 * @see #parse(Path)
+	 */
+	@Override
+	public DataNode parse(File file) throws IOException, ParseException {
+		
+		Objects.requireNonNull(file, "input file must not be null");
+		if (! file.isFile()) return Parser.super.parse(file);
+		return parse(file.toPath());
+	}
+
+	
+	/**
+	 * Creates a data node from a file with SDA content in UTF-8 encoding. The file
+	 * is mapped into memory and decoded directly. Note that on some platforms, a
+	 * mapped file cannot be deleted until the mapping is garbage collected.
+	 * Anything that is not a regular file (such as a named pipe) is not mapped,
+	 * but read the default way.
+	 * <p>
+	 * A file that is compressed with GZIP or DEFLATE (in ZLIB format) is not
+	 * mapped, but decompressed as it is read, in large blocks that go straight to
+	 * the scanner. This is detected from the first bytes of the file.
+	 * 
+	 * @param path the path to an input file, not null
+	 * @return a (root) node, never null
+	 * @throws IOException    if an I/O operation failed
+	 * @throws ParseException if a parsing error occurs
+	 */
+	public DataNode parse(Path path) throws IOException, ParseException {
+		
+		Objects.requireNonNull(path, "input path must not be null");
+		if (! Files.isRegularFile(path)) return Parser.super.parse(path.toFile());
+		try (
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		) {
+			final Compression compression = Compression.of(channel);
+			return (compression == Compression.NONE) ? parse(channel) : parse(channel, compression);
+		}
+		catch (IOException e) {
+			throw new IOException("error reading from " + path, e);
+		}
+		catch (ParseException e) {
+			throw new FileParseException(path.toString(), e);
+		}
+	}
+	
+	
+	/**
+	 * Creates a data node from a file channel with SDA content in UTF-8 encoding,
+	 * starting at the current position of the channel. The file is mapped into
+	 * memory (one region at a time) and decoded directly. This method does not
+	 * close the channel.
+	 * 
+	 * @param channel a file channel, not null
+	 * @return a (root) node, never null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public DataNode parse(FileChannel channel) throws IOException, SDAParseException {
 
-			scanner.advance(true); // skip right brace and whitespace
-		}
-		else { // no complex content
-			if (value == null) // and no simple content either
-				throw exception(scanner.p, "unexpected character '%c'", scanner.c);
-		}
-		
-		return node;
-	}
-
-
-	/**
-	 * Returns an SDA parse exception with a message that includes the error position.
-	 * 
-	 * @param offset position where the error was found
-	 * @param format a format message, and
-	 * @param args   arguments, as in {@link String#format}
-	 * @return SDAParseException
-	 */
-	private static final SDAParseException exception(int offset, String format, Object... args) {
-		return new SDAParseException(String.format(format, args), offset);
-	}
-	
-
-	/**
-	 * Inner {@code Scanner} class for the {@code SDAParser}.
-	 */
-	private final class Scanner {
-	    
-	    private Reader input; // the input stream
-		private int c; // current character in the stream
-		private int p; // current position in the stream
-		
-	    
-	    /** Create and initialize a scanner at position 0. */
-	    Scanner(Reader input) {
-	    	this.input = input; p=0;
-	    }
-
-		
-		/**
-		 * Advance the scanner to the next character in the input stream.
-		 * If <code>skipWhite</code> is true, whitespace will be skipped.
-		 */
-	    void advance(boolean skipWhite) throws IOException {
-	    	do {
-	    		c = input.read(); ++p;
-	    	} 
-	    	while (skipWhite && Character.isWhitespace(c));
-	    }
-	    
-
-	    private static final int EOF = -1;
-	    /** Check and abort when EOF is reached. */
-	    void checkEOF() throws SDAParseException {
-	    	if (c == EOF) throw exception(p-1, "unexpected end of input");
-	    }
-	    
-	    
-	    /** Look for a valid node name and return it. */
-	    String getNodeName() throws SDAParseException, IOException  {
-	    	
-	    	String s = "";
-	    	
-	    	checkEOF();
-	    	if (! SDA.isNameStart(c)) 
-	    		throw exception(p, "node name cannot start with '%c'", c);
-	    	
-	    	do { // add to result until we get something that is not part of a node name
-	    		s = s + (char)c; advance(false);
-	    	} while (SDA.isNamePart(c));
-
-	    	if (Character.isWhitespace(c)) advance(true);
-	    	checkEOF();  // dangling node names are not allowed
-	 
-	    	return s;
-	    }
-	    
-	    
-	    /** Look for a quoted string and return it (without quotes). */
-	    String getQuotedString() throws SDAParseException, IOException  {
-	    	
-	    	String s = ""; boolean escape = false;
-	    	
-	    	if (c != SDA.QUOTE)  // must start with quote
-	    		throw exception(p, "unexpected character '%c'", c);
-	    	
-	    	// add to result until we get the end quote or EOF, handle escaped characters  	
-	    	while (true) {
-	    		advance(false); checkEOF();
-	    		if (!escape && c == SDA.BSLASH) {escape = true; continue; };
-	    		if (escape) { s = s + (char)c; escape = false; continue; }
-	    		if (c == SDA.QUOTE) break;
-	    		s = s + (char)c;
-	    	}
-	    	
-	    	advance(true); // skip over the end quote and white-space that follows
-	    	return s;
-	    }   
+		Objects.requireNonNull(channel, "input channel must not be null");
+		return parse(new UTF8Reader(channel));
+	}
+	
+	
+	private static final int MAXSMALL = 1 << 20; // maximum size of a file read at once
+	
+	/**
+	 * Creates data nodes from a collection of files with SDA content in UTF-8
+	 * encoding, reading and parsing them concurrently. The files are divided among
+	 * a number of workers that run on the specified executor, and that each re-use
+	 * their own input buffers for all the files they parse. Small files are read
+	 * into these buffers at once, rather than mapped into memory; larger files
+	 * and compressed files are parsed as in {@link #parse(Path)}.
+	 * <p>
+	 * The results are in the same order as the paths. A file that was parsed
+	 * successfully yields an OK result with its root node, while a file that
+	 * could not be read or parsed yields an error result with the message of the
+	 * exception (which includes the file name). The number of workers depends on
+	 * the parallelism of the executor if it is a {@code ForkJoinPool} or a
+	 * {@code ThreadPoolExecutor}, and on the number of processors otherwise.
+	 * 
+	 * @param paths    a collection of paths to input files, not null
+	 * @param executor an executor, not null
+	 * @return results, one for each path
+	 * @throws InterruptedException if the current thread was interrupted while
+	 *                              waiting for the workers to finish
+	 */
+	public Results<DataNode> parseAll(Collection<Path> paths, Executor executor) throws InterruptedException {
+		
+		Objects.requireNonNull(paths, "input paths must not be null");
+		Objects.requireNonNull(executor, "executor must not be null");
+		final Path[] files = paths.toArray(new Path[0]);
+		for (Path path : files) Objects.requireNonNull(path, "input path must not be null");
+		
+		@SuppressWarnings("unchecked")
+		final Result<DataNode>[] results = (Result<DataNode>[]) new Result<?>[files.length];
+		final AtomicInteger next = new AtomicInteger(); // the index of the next file
+		
+		final int workers = Math.min(files.length, parallelism(executor));
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+		for (int w = 0; w < workers; w++) {
+			futures[w] = CompletableFuture.runAsync(() -> {
+				final Buffers buffers = new Buffers(); int i;
+				while ((i = next.getAndIncrement()) < files.length)
+					results[i] = parse(files[i], buffers);
+			}, executor);
+		}
+		
+		try {
+			CompletableFuture.allOf(futures).get();
+		}
+		catch (InterruptedException e) {
+			next.set(files.length); throw e; // and let the workers stop early
+		}
+		catch (ExecutionException e) { // a worker failed unexpectedly
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error) throw (Error) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IllegalStateException(cause);
+		}
+		
+		final Results<DataNode> list = new Results<>();
+		list.addAll(Arrays.asList(results)); return list;
+	}
+
+
+	/**
+	 * Creates data nodes from a collection of files with SDA content in UTF-8
+	 * encoding, reading and parsing them concurrently on a temporary executor. The
+	 * executor uses virtual threads if the Java runtime supports them, and a pool
+	 * of platform threads (one for each processor) otherwise.
+	 * 
+	 * @param paths a collection of paths to input files, not null
+	 * @return results, one for each path
+	 * @throws InterruptedException if the current thread was interrupted while
+	 *                              waiting for the workers to finish
+	 * @see #parseAll(Collection, Executor)
+	 */
+	public Results<DataNode> parseAll(Collection<Path> paths) throws InterruptedException {
+		
+		final ExecutorService executor = newExecutor();
+		try {
+			return parseAll(paths, executor);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	/*
+	 * Private helper to create an executor that starts a virtual thread for each
+	 * task, or a fixed pool of daemon threads if virtual threads are not available
+	 * (before Java 21). Reflection is used so this compiles on older versions.
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} 
+		catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				final Thread t = new Thread(r, "sda-parser"); t.setDaemon(true); return t;
+			});
+		}
+	}
+	
+	
+	/*
+	 * Private helper to determine the number of workers for an executor. Threads
+	 * spend part of their time waiting for I/O, so with an unknown executor (such
+	 * as one that uses virtual threads) there are twice as many workers as there
+	 * are processors.
+	 */
+	private static int parallelism(Executor executor) {
+		if (executor instanceof ForkJoinPool) 
+			return ((ForkJoinPool) executor).getParallelism();
+		if (executor instanceof ThreadPoolExecutor)
+			return Math.max(1, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+		return Runtime.getRuntime().availableProcessors() * 2;
+	}
+	
+	
+	/** The input buffers of a batch worker, which grow as required. */
+	private static final class Buffers {
+		ByteBuffer bytes = ByteBuffer.allocate(1 << 14);
+		char[] chars = new char[1 << 14];
+	}
+	
+	
+	/*
+	 * Private helper to parse a file into a result, using the specified buffers.
+	 * Since nodes refer to their input when values are deferred, the characters
+	 * are copied in that case, so the buffer can still be re-used.
+	 */
+	private Result<DataNode> parse(Path path, Buffers buffers) {
+		
+		try (
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		) {
+			final Compression compression = Compression.of(channel);
+			if (compression != Compression.NONE) return Result.OK(parse(channel, compression));
+			if (channel.size() > MAXSMALL) return Result.OK(parse(channel));
+			
+			ByteBuffer bytes = buffers.bytes; bytes.clear();
+			while (channel.read(bytes) >= 0) // until the end of the file
+				if (! bytes.hasRemaining()) {
+					final ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() << 1);
+					bytes.flip(); larger.put(bytes); buffers.bytes = bytes = larger;
+				}
+			bytes.flip();
+			
+			if (buffers.chars.length < bytes.limit()) // a byte yields at most one char
+				buffers.chars = new char[Math.max(buffers.chars.length << 1, bytes.limit())];
+			final char[] chars = buffers.chars; int n = 0, r;
+			final UTF8Reader input = new UTF8Reader(bytes);
+			while ((r = input.read(chars, n, chars.length - n)) > 0) n += r;
+			
+			final Scanner scanner = deferred ? new Scanner(Arrays.copyOf(chars, n), n) : new Scanner(chars, n);
+			return Result.OK(build(configure(new SDAReader(scanner, deferred, false)), null, null));
+		}
+		catch (IOException e) {
+			return Result.error("error reading from " + path + ": " + e.getMessage());
+		}
+		catch (ParseException e) {
+			return Result.error(new FileParseException(path.toString(), e).getLocalizedMessage());
+		}
+	}
+	
+	
+	/*
+	 * Private helper to parse a compressed file channel, decompressing it as it
+	 * is read, and decoding the decompressed blocks straight into the scanner.
+	 */
+	private DataNode parse(FileChannel channel, Compression compression) throws IOException, SDAParseException {
+		try (
+			InputStream input = compression.decompress(Channels.newInputStream(channel));
+		) {
+			return parse(new UTF8Reader(input));
+		}
+	}
+	
+	
+	/**
+	 * Returns a record reader for a character input stream in SDA format, which
+	 * reads the child nodes of the root node one at a time. The start of the root
+	 * node is read before this method returns. Values are never deferred, since
+	 * that would retain all input in memory.
+	 * 
+	 * @param input an input stream, not null
+	 * @return a record reader
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 * @see SDARecordReader
+	 */
+	public SDARecordReader records(Reader input) throws IOException, SDAParseException {
+
+		return new SDARecordReader(configure(new SDAReader(input)));
+	}
+	
+	
+	/**
+	 * Creates a read-only tape document from a character input stream in SDA
+	 * format, which takes a fraction of the heap of a tree of data nodes. The
+	 * maximum depth and the projection of this parser apply. Values are never
+	 * deferred, since they are copied into the document.
+	 * 
+	 * @param input an input stream, not null
+	 * @return a document, not null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 * @see TapeDocument
+	 */
+	public TapeDocument tape(Reader input) throws IOException, SDAParseException {
+
+		return TapeDocument.read(configure(new SDAReader(input)));
+	}
+	
+	
+	/**
+	 * Returns a document reader for a character input stream that holds a
+	 * sequence of documents in SDA format, which reads the root nodes one at a
+	 * time. Values are never deferred, since that would require all input to be
+	 * read first.
+	 * 
+	 * @param input an input stream, not null
+	 * @return a document reader
+	 * @see SDADocumentReader
+	 */
+	public SDADocumentReader documents(Reader input) {
+		return new SDADocumentReader(configure(new SDAReader(input)));
+	}
+	
+	
+	/**
+	 * Parses a character input stream in SDA format and reports its content to a
+	 * handler, without creating any nodes. The handler is notified of a parsing
+	 * error before the exception is thrown.
+	 * 
+	 * @param input   an input stream, not null
+	 * @param handler a handler, not null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public void parse(Reader input, SDAHandler handler) throws IOException, SDAParseException {
+
+		Objects.requireNonNull(handler, "handler must not be null");
+		final SDAReader reader = configure(new SDAReader(input));
+		
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case START_NODE:
+					handler.startNode(reader.getName(), reader.getValue()); break;
+				case END_NODE:
+					handler.endNode(reader.getName()); break;
+				default: // value has been reported already
+				}
+			}
+		} 
+		catch (SDAParseException e) {
+			handler.error(e); throw e;
+		}
 	}
 }
@@ -0,0 +1,277 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import be.baur.sda.SDA;
+
+/**
+ * An {@code SDAPushParser} processes SDA content that is fed to it in chunks,
+ * rather than pulling it from a (blocking) input stream. It keeps its state
+ * between chunks, and reports the content to a handler as soon as each node
+ * start or end is complete. This allows a single thread to process many input
+ * streams at the same time, as in the following (simplified) example:
+ *
+ * <pre>
+ * SDAPushParser parser = new SDAPushParser(handler);
+ * while (parser.feed(buffer)) { ... read more bytes into buffer ... }
+ * parser.end();
+ * </pre>
+ *
+ * The push parser applies the same syntax rules as the {@code SDAParser}, and
+ * throws an {@code SDAParseException} with the same message and error offset,
+ * no matter how the input is split into chunks. A push parser is not
+ * thread-safe, and cannot be used after it has ended or failed.
+ *
+ * @see SDAParser#parse(java.io.Reader, SDAHandler)
+ */
+public final class SDAPushParser {
+
+	private static final int BUFSIZE = 8192; // size of the decoding buffer
+
+	private final SDAHandler handler; // the handler to report to
+	private final Scanner scanner = new Scanner(); // the scanner for fed input
+	private CharsetDecoder decoder; // UTF-8 decoder, created on first use
+	private CharBuffer decoded; // decoding buffer, created on first use
+	private final ByteBuffer carry = ByteBuffer.allocate(8); // incomplete byte sequence
+
+	private String[] names = new String[16]; // the names of the open parent nodes
+	private int depth = 0; // the number of open parent nodes
+	private int maxDepth = Integer.MAX_VALUE; // maximum depth of a node
+
+	private boolean started; // whether the root node has started
+	private boolean quoted; // whether input ran out in a quoted string
+	private boolean escaped; // whether input ran out on an escape in a quoted string
+	private boolean closed; // whether input has ended, or parsing has failed
+
+
+	/**
+	 * Creates a push parser that reports to the specified handler.
+	 *
+	 * @param handler a handler, not null
+	 */
+	public SDAPushParser(SDAHandler handler) {
+		this.handler = Objects.requireNonNull(handler, "handler must not be null");
+	}
+
+
+	/**
+	 * Sets the maximum depth of a node, where the root node has depth 1. Input
+	 * that is nested deeper causes an SDA parse exception. By default, there is no
+	 * limit.
+	 *
+	 * @param depth a maximum depth
+	 * @throws IllegalArgumentException if depth is less than 1
+	 */
+	public void setMaxDepth(int depth) {
+		if (depth < 1) throw
+			new IllegalArgumentException("invalid maximum depth (" + depth + ")");
+		this.maxDepth = depth;
+	}
+
+
+	/**
+	 * Returns true if more input is needed to complete the root node. Once the
+	 * root node is complete, any input that follows must be white-space.
+	 *
+	 * @return true or false
+	 */
+	public boolean needsInput() {
+		return ! closed && (! started || depth > 0);
+	}
+
+
+	/**
+	 * Feeds a chunk of characters to the parser, and reports all content that is
+	 * complete. Incomplete content is retained until more input is fed.
+	 *
+	 * @param chars  an array of characters, not null
+	 * @param offset the start of the chunk
+	 * @param length the length of the chunk
+	 * @return true if more input is needed, see {@link #needsInput}
+	 * @throws IOException           if the handler aborts parsing
+	 * @throws SDAParseException     if an SDA parsing error occurs
+	 * @throws IllegalStateException if the parser has ended or failed
+	 */
+	public boolean feed(char[] chars, int offset, int length) throws IOException, SDAParseException {
+
+		if (closed) throw new IllegalStateException("parser has ended or failed");
+		if (offset < 0 || length < 0 || offset + length > chars.length)
+			throw new IndexOutOfBoundsException("invalid chunk (" + offset + ", " + length + ")");
+		append(chars, offset, length);
+		return quoted || process(false);
+	}
+
+
+	/*
+	 * Private helper to append input to the scanner. If input ran out in a quoted
+	 * string, there is no point in scanning again until the end quote is fed.
+	 */
+	private void append(char[] chars, int offset, int length) {
+		scanner.feed(chars, offset, length);
+		for (int i = offset, end = offset + length; quoted && i < end; ++i) {
+			final char c = chars[i];
+			if (escaped) escaped = false;
+			else if (c == SDA.BSLASH) escaped = true;
+			else if (c == SDA.QUOTE) quoted = false;
+		}
+	}
+
+
+	/**
+	 * Feeds a chunk of bytes in UTF-8 encoding to the parser, and reports all
+	 * content that is complete. All remaining bytes in the buffer are consumed; a
+	 * byte sequence that is split between chunks is decoded once it is complete.
+	 * Malformed input is replaced, as it would be by an input stream reader.
+	 *
+	 * @param bytes a byte buffer, not null
+	 * @return true if more input is needed, see {@link #needsInput}
+	 * @throws IOException           if the handler aborts parsing
+	 * @throws SDAParseException     if an SDA parsing error occurs
+	 * @throws IllegalStateException if the parser has ended or failed
+	 */
+	public boolean feed(ByteBuffer bytes) throws IOException, SDAParseException {
+
+		if (closed) throw new IllegalStateException("parser has ended or failed");
+		if (decoder == null) {
+			decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			decoded = CharBuffer.allocate(BUFSIZE);
+		}
+
+		while (carry.position() > 0 && bytes.hasRemaining()) { // complete a sequence
+			carry.put(bytes.get()).flip();
+			decode(carry, false); carry.compact();
+		}
+		decode(bytes, false);
+		carry.put(bytes); // an incomplete sequence, if any
+
+		return quoted || process(false);
+	}
+
+
+	// Private helper to decode bytes and append the resulting characters.
+	private void decode(ByteBuffer bytes, boolean endOfInput) {
+		while (decoder.decode(bytes, decoded, endOfInput).isOverflow()) flush();
+		flush();
+	}
+
+
+	// Private helper to append decoded characters.
+	private void flush() {
+		append(decoded.array(), 0, decoded.position()); decoded.clear();
+	}
+
+
+	/**
+	 * Signals the end of input to the parser, and reports any remaining content.
+	 *
+	 * @throws IOException           if the handler aborts parsing
+	 * @throws SDAParseException     if an SDA parsing error occurs
+	 * @throws IllegalStateException if the parser has ended or failed
+	 */
+	public void end() throws IOException, SDAParseException {
+
+		if (closed) throw new IllegalStateException("parser has ended or failed");
+		if (decoder != null) { // decode an incomplete sequence, if any
+			carry.flip(); decode(carry, true); carry.clear();
+			decoder.flush(decoded); flush();
+		}
+		process(true);
+	}
+
+
+	/*
+	 * Private helper to scan and report content, starting at the last saved state
+	 * of the scanner. The state is saved after each node start and end, so that
+	 * scanning can be resumed there when input runs out (and this is not the end
+	 * of input). Returns true if more input is needed.
+	 */
+	private boolean process(boolean last) throws IOException, SDAParseException {
+
+		boolean ok = false;
+		try {
+			scanner.restore(); quoted = false;
+			while (true) {
+				if (Character.isWhitespace(scanner.c)) scanner.advance(true);
+				if (scanner.c == Scanner.EOF) {
+					if (! last) {
+						scanner.save(); ok = true; return needsInput();
+					}
+					if (needsInput()) scanner.checkEOF();
+					closed = ok = true; return false;
+				}
+
+				if (depth == 0 && started)
+					throw scanner.exception(scanner.p, "excess input after root node");
+
+				if (depth > 0 && scanner.c == SDA.RBRACE) { // end of complex content
+					scanner.advance(true); // skip right brace and whitespace
+					handler.endNode(names[--depth]);
+				}
+				else if (! startNode(last)) { // input ran out
+					ok = true; return true;
+				}
+				scanner.save();
+			}
+		}
+		catch (SDAParseException e) {
+			if (! last && scanner.c == Scanner.EOF) { // input ran out
+				if (quoted) { // see if it ran out on an escape
+					final char[] buf = scanner.buffer(); final int lim = scanner.limit();
+					int i = lim; while (buf[i-1] == SDA.BSLASH) --i;
+					escaped = ((lim - i) & 1) == 1;
+				}
+				ok = true; return true;
+			}
+			handler.error(e); throw e;
+		}
+		finally {
+			if (! ok) closed = true;
+		}
+	}
+
+
+	/*
+	 * Private helper to read the name, value and start of complex content of the
+	 * next node, and report the start (and end) of it. Returns false if the input
+	 * ran out before it could be established whether complex content follows.
+	 */
+	private boolean startNode(boolean last) throws IOException, SDAParseException {
+
+		final int start = scanner.p; // the position of the node
+		final String name = scanner.getNodeName();
+		if (depth >= maxDepth)
+			throw scanner.exception(start, "maximum depth (%d) exceeded", maxDepth);
+
+		String value = null;
+		if (scanner.c == SDA.QUOTE) {
+			quoted = true; value = scanner.getQuotedString(); quoted = false;
+		}
+
+		if (scanner.c == SDA.LBRACE) { // complex content ahead
+			scanner.advance(true); // skip left brace and whitespace
+			if (depth == names.length)
+				names = Arrays.copyOf(names, depth << 1);
+			names[depth++] = name; started = true;
+			handler.startNode(name, value);
+		}
+		else { // no complex content
+			if (scanner.c == Scanner.EOF && ! last)
+				return false; // unless it follows
+			if (value == null) // and no simple content either
+				throw scanner.exception(scanner.p, "unexpected character '%c'", scanner.c);
+			started = true;
+			handler.startNode(name, value); handler.endNode(name);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,443 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.SDA;
+import be.baur.sda.util.Result;
+import be.baur.sda.util.Results;
+
+/**
+ * An {@code SDAReader} is a pull-style reader that processes SDA content one
+ * event at a time, rather than creating a node tree. For example, the input:
+ *
+ * <pre>
+ * greeting { message "hello" }
+ * </pre>
+ *
+ * yields START_NODE (greeting), START_NODE (message), VALUE (hello), END_NODE
+ * (message), END_NODE (greeting) and EOF. Since the reader only keeps track of
+ * the names of the nodes it is in, it can process documents of any size in
+ * (nearly) constant memory.
+ * <p>
+ * The reader applies the same syntax rules as the {@code SDAParser}, and throws
+ * an {@code SDAParseException} with the same message and error offset. A reader
+ * is not thread-safe, and is not re-usable once it has reached the end of input.
+ *
+ * @see SDAParser
+ */
+public final class SDAReader {
+
+	/** The type of event reported by the reader. */
+	public enum Event {
+		/** The start of a node; its name is available. */
+		START_NODE,
+		/** The (simple content) value of the current node. */
+		VALUE,
+		/** The end of a node. */
+		END_NODE,
+		/** The end of the input; no more events follow. */
+		EOF
+	}
+
+	private final Scanner scanner; // the scanner for the input stream
+	private Event event; // the current event, null if none yet
+
+	private String[] names = new String[16]; // the names of the open parent nodes
+	private int depth = 0; // the number of open parent nodes
+	private int maxDepth = Integer.MAX_VALUE; // maximum depth of a node
+	private Projection projection; // the projection at the top level, null if none
+	private Projection[] scopes; // the projections for the open parent nodes
+
+	private String name; // the name of the current node
+	private int offset; // the position of the current node
+	private CharSequence value; // the value of the current node, may be null
+	private final boolean deferred; // whether values are decoded when first used
+	private final boolean fragment; // whether to read a sequence of nodes
+	private boolean leaf; // whether the current node has no child nodes
+	private boolean pendingValue; // whether a VALUE event is next
+	private boolean pendingEnd; // whether an END_NODE event (for a leaf) is next
+	private boolean started; // whether the first token has been reached
+	private Results<SDAParseException> errors; // errors recovered from, null if none
+	private boolean ended; // whether an unexpected end of input was recovered from
+	private boolean offsets; // whether to set the source offset of nodes
+
+
+	/**
+	 * Creates a reader for a character input stream in SDA format.
+	 *
+	 * @param input an input stream, not null
+	 */
+	public SDAReader(Reader input) {
+		Objects.requireNonNull(input, "input reader must not be null");
+		this.scanner = new Scanner(input); this.deferred = false; this.fragment = false;
+	}
+
+
+	/**
+	 * Creates a reader for a scanner. If values are deferred, the scanner must
+	 * have all input in memory. A fragment is a sequence of zero or more nodes
+	 * (the content of a parent node) rather than a single root node.
+	 */
+	SDAReader(Scanner scanner, boolean deferred, boolean fragment) {
+		this.scanner = scanner; this.deferred = deferred; this.fragment = fragment;
+	}
+
+
+	/**
+	 * Sets the maximum depth of a node, where the root node has depth 1. Input
+	 * that is nested deeper causes an SDA parse exception. By default, there is no
+	 * limit.
+	 *
+	 * @param depth a maximum depth
+	 * @throws IllegalArgumentException if depth is less than 1
+	 */
+	public void setMaxDepth(int depth) {
+		if (depth < 1) throw
+			new IllegalArgumentException("invalid maximum depth (" + depth + ")");
+		this.maxDepth = depth;
+	}
+
+
+	/*
+	 * Sets the projection at the top level, or null for none. Nodes outside the
+	 * projection are skipped, except for the root node (unless this is a fragment).
+	 */
+	void setProjection(Projection projection) {
+		this.projection = projection;
+		if (projection != null && scopes == null) scopes = new Projection[names.length];
+	}
+
+
+	// Sets whether to set the source offset of nodes created by this reader.
+	void setSourceOffsets(boolean offsets) {
+		this.offsets = offsets;
+	}
+
+
+	/*
+	 * Creates a node for the current START_NODE event, with a child set if it is
+	 * not a leaf, and its source offset if so requested.
+	 */
+	DataNode node() {
+		final DataNode node = new DataNode(name, getValueSequence());
+		if (! leaf) node.add(null); // initialize child set
+		if (offsets) node.setSourceOffset(offset);
+		return node;
+	}
+
+
+	/*
+	 * Makes the reader recover from SDA parsing errors, which are added to the
+	 * specified results rather than thrown. After an error, the reader skips input
+	 * up to the start of the next node or the end of the enclosing node, and an
+	 * unexpected end of input ends all open nodes.
+	 */
+	void setRecovery(Results<SDAParseException> errors) {
+		this.errors = errors;
+	}
+
+
+	/**
+	 * Returns true if there are more events, or false if the end of input has been
+	 * reported.
+	 *
+	 * @return true or false
+	 */
+	public boolean hasNext() {
+		return event != Event.EOF;
+	}
+
+
+	/**
+	 * Advances the reader to the next event and returns it.
+	 *
+	 * @return an event, not null
+	 * @throws IOException            if an I/O operation failed
+	 * @throws SDAParseException      if an SDA parsing error occurs
+	 * @throws NoSuchElementException if the end of input was already reported
+	 */
+	public Event next() throws IOException, SDAParseException {
+
+		if (event == Event.EOF)
+			throw new NoSuchElementException("no more events");
+
+		if (pendingValue) { // report the value of the current node
+			pendingValue = false; return event = Event.VALUE;
+		}
+
+		if (pendingEnd) { // report the end of the current (leaf) node
+			pendingEnd = false; return event = Event.END_NODE;
+		}
+
+		if (! started) { // advance to the first non-whitespace character
+			scanner.advance(true); started = true;
+		}
+
+		do {
+			if (depth == 0) { // at the top level
+				if (event != null || fragment || (errors != null && scanner.c == Scanner.EOF)) {
+					if (scanner.c == Scanner.EOF) {
+						if (event == null && ! fragment) // there is no root node
+							error(scanner.exception(scanner.p - 1, "unexpected end of input"));
+						return event = Event.EOF;
+					}
+					if (! fragment) { // and not before the root node
+						final SDAParseException e = 
+							scanner.exception(scanner.p, "excess input after root node");
+						if (errors == null) throw e;
+						error(e); return event = Event.EOF; // and ignore the excess
+					}
+				}
+			}
+			else if (scanner.c == SDA.RBRACE || (errors != null && scanner.c == Scanner.EOF)) {
+				if (scanner.c == Scanner.EOF) // end all open nodes
+					error(scanner.exception(scanner.p - 1, "unexpected end of input"));
+				else scanner.advance(true); // skip right brace and whitespace
+				name = names[--depth]; leaf = false;
+				return event = Event.END_NODE;
+			}
+		} while (! startNode()); // the next child node, unless it was skipped
+
+		return event = Event.START_NODE;
+	}
+
+
+	/*
+	 * Returns true if there is another root node in the input, so that a sequence
+	 * of documents can be read. This can be called before the first event, and
+	 * after the end of each root node. Otherwise, EOF is reported.
+	 */
+	boolean hasDocument() throws IOException {
+
+		if (! started) { // advance to the first non-whitespace character
+			scanner.advance(true); started = true;
+		}
+		else if (depth > 0 || pendingValue || pendingEnd)
+			throw new IllegalStateException("not at the end of a root node");
+
+		if (scanner.c == Scanner.EOF) {
+			event = Event.EOF; return false;
+		}
+		event = null; return true; // the next event is the start of a root node
+	}
+
+
+	/*
+	 * Private helper to read the start of the next node, and recover from an error
+	 * if so requested. Returns false if there is no node to report (yet).
+	 */
+	private boolean startNode() throws IOException, SDAParseException {
+
+		if (errors == null) return readNode();
+		try {
+			return readNode();
+		}
+		catch (SDAParseException e) {
+			recover(e); return false;
+		}
+	}
+
+
+	/*
+	 * Private helper to record an error. An unexpected end of input is recorded
+	 * only once.
+	 */
+	private void error(SDAParseException e) {
+		if (ended) return; // no more input to recover from
+		ended = (scanner.c == Scanner.EOF);
+		errors.add(Result.error(e, e.getLocalizedMessage()));
+	}
+
+
+	/*
+	 * Private helper to record an error, and skip input up to the next token that
+	 * follows white-space, a value or a brace, or up to a right brace that ends an
+	 * open node. Values and complex content are skipped as a whole.
+	 */
+	private void recover(SDAParseException e) throws IOException {
+
+		error(e);
+		boolean boundary = SDA.isNameStart(scanner.c); // whether a node may start here
+		try {
+			while (true) {
+				final int c = scanner.c;
+				if (c == Scanner.EOF || (c == SDA.RBRACE && depth > 0)) break;
+				if (c == SDA.QUOTE) scanner.skipQuotedString();
+				else if (c == SDA.LBRACE) scanner.skipComplexContent();
+				else if (boundary && ! Character.isWhitespace(c)) break;
+				else {
+					scanner.advance(false);
+					boundary = Character.isWhitespace(c) || c == SDA.RBRACE; continue;
+				}
+				boundary = true;
+			}
+		}
+		catch (SDAParseException eof) {
+			error(eof);
+		}
+	}
+
+
+	/*
+	 * Private helper to read the name, value and start of complex content of the
+	 * next node. Returns false if the node was skipped because it is outside the
+	 * projection.
+	 */
+	private boolean readNode() throws IOException, SDAParseException {
+
+		offset = scanner.p; // the position of the node, which may be discarded before an error
+		final SDAParseException deep = (depth < maxDepth) ? null 
+			: scanner.exception(offset, "maximum depth (%d) exceeded", maxDepth);
+		name = scanner.getNodeName();
+		if (deep != null) throw deep;
+
+		Projection scope = null; // the projection for the content of this node
+		if (projection != null) {
+			final Projection outer = (depth == 0) ? projection : scopes[depth-1];
+			if (depth > 0 || fragment) {
+				if ((scope = outer.get(name)) == null) { 
+					skip(); return false; 
+				}
+			}
+			else scope = outer.root(name);
+		}
+
+		value = (scanner.c != SDA.QUOTE) ? null 
+			: deferred ? scanner.getEncodedValue() : scanner.getQuotedString();
+
+		if (scanner.c == SDA.LBRACE) { // complex content ahead
+			scanner.advance(true); // skip left brace and whitespace
+			if (depth == names.length)
+				names = Arrays.copyOf(names, depth << 1);
+			if (scope != null) {
+				if (depth >= scopes.length) scopes = Arrays.copyOf(scopes, names.length);
+				scopes[depth] = scope;
+			}
+			names[depth++] = name; leaf = false;
+		}
+		else { // no complex content
+			if (value == null) // and no simple content either
+				throw scanner.exception(scanner.p, "unexpected character '%c'", scanner.c);
+			leaf = true; pendingEnd = true;
+		}
+
+		pendingValue = (value != null);
+		return true;
+	}
+
+
+	/*
+	 * Private helper to skip the value and complex content of a node, without
+	 * creating anything. Syntax errors in the content are not detected, except
+	 * for an unexpected end of input.
+	 */
+	private void skip() throws IOException, SDAParseException {
+
+		final boolean value = (scanner.c == SDA.QUOTE);
+		if (value) scanner.skipQuotedString();
+
+		if (scanner.c == SDA.LBRACE) 
+			scanner.skipComplexContent();
+		else if (! value) // no simple or complex content
+			throw scanner.exception(scanner.p, "unexpected character '%c'", scanner.c);
+	}
+
+
+	/**
+	 * Returns the current event, or null if {@link #next} has not been called yet.
+	 *
+	 * @return an event, may be null
+	 */
+	public Event getEvent() {
+		return event;
+	}
+
+
+	/**
+	 * Returns the name of the current node. This method can be called on
+	 * START_NODE, VALUE and END_NODE events.
+	 *
+	 * @return a node name, not null
+	 * @throws IllegalStateException if there is no current node
+	 */
+	public String getName() {
+		if (event == null || event == Event.EOF)
+			throw new IllegalStateException("no current node");
+		return name;
+	}
+
+
+	/**
+	 * Returns the value of the current node, or null if the node has no value.
+	 * This method can be called on START_NODE and VALUE events.
+	 *
+	 * @return a value, may be null
+	 * @throws IllegalStateException if the event is not START_NODE or VALUE
+	 */
+	public String getValue() {
+		final CharSequence value = getValueSequence();
+		return (value == null) ? null : value.toString();
+	}
+	
+	
+	/*
+	 * Returns the value of the current node, which may be a deferred value that is
+	 * decoded when it is turned into a string.
+	 */
+	CharSequence getValueSequence() {
+		if (event != Event.START_NODE && event != Event.VALUE)
+			throw new IllegalStateException("no value available on " + event);
+		return value;
+	}
+
+
+	/**
+	 * Returns the position of the current node in the input, which is the number
+	 * of characters read up to and including its first character (like the error
+	 * offset of an SDA parse exception). This method can be called on START_NODE
+	 * and VALUE events.
+	 *
+	 * @return a positive integer
+	 * @throws IllegalStateException if the event is not START_NODE or VALUE
+	 */
+	public int getOffset() {
+		if (event != Event.START_NODE && event != Event.VALUE)
+			throw new IllegalStateException("no offset available on " + event);
+		return offset;
+	}
+
+
+	/**
+	 * Returns true if the current node has no child list. Like
+	 * {@code DataNode.isLeaf()} this returns false for a node with an empty child
+	 * list (as in <code>node{ }</code> for example). This method can be called on
+	 * START_NODE, VALUE and END_NODE events.
+	 *
+	 * @return true or false
+	 * @throws IllegalStateException if there is no current node
+	 */
+	public boolean isLeaf() {
+		if (event == null || event == Event.EOF)
+			throw new IllegalStateException("no current node");
+		return leaf;
+	}
+
+
+	/**
+	 * Returns the depth of the current node, where the root node has depth 1. On
+	 * an EOF event (or before the first event) this method returns 0.
+	 *
+	 * @return a non-negative integer
+	 */
+	public int getDepth() {
+		if (event == null || event == Event.EOF) return 0;
+		// a leaf and an ended parent are not (or no longer) counted as open parents
+		return (leaf || event == Event.END_NODE) ? depth + 1 : depth;
+	}
+
+}
@@ -0,0 +1,140 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import be.baur.sda.DataNode;
+
+/**
+ * An {@code SDARecordReader} reads the child nodes of the root node one at a
+ * time, as fully built nodes (records), without building the root node itself.
+ * For example, the input:
+ *
+ * <pre>
+ * addressbook {
+ *     contact "1" { firstname "Alice" }
+ *     contact "2" { firstname "Bob" }
+ * }
+ * </pre>
+ *
+ * yields two 'contact' nodes, while the name and value of the 'addressbook'
+ * node are available from {@link #getRoot}. Since a record is forgotten once
+ * it has been returned, memory use is bounded by the largest record rather than
+ * the size of the input.
+ * <p>
+ * The record reader applies the same syntax rules as the {@code SDAParser}, and
+ * throws an {@code SDAParseException} with the same message and error offset.
+ * A record reader is not thread-safe.
+ *
+ * @see SDAParser#records(Reader)
+ */
+public final class SDARecordReader {
+
+	private final SDAReader reader; // the reader for the input stream
+	private final DataNode root; // the root node, without child nodes
+	private DataNode record; // the next record, null if not read yet
+
+
+	/**
+	 * Creates a record reader for a character input stream in SDA format, and
+	 * reads the start of the root node.
+	 *
+	 * @param input an input stream, not null
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public SDARecordReader(Reader input) throws IOException, SDAParseException {
+		this(new SDAReader(input));
+	}
+
+
+	/*
+	 * Creates a record reader for an SDA reader, and reads the start of the root
+	 * node.
+	 */
+	SDARecordReader(SDAReader reader) throws IOException, SDAParseException {
+		this.reader = reader; reader.next();
+		root = reader.node();
+	}
+
+
+	/**
+	 * Returns the root node, which has the name and value of the root node in the
+	 * input. The root node is a leaf if it has no complex content in the input,
+	 * but otherwise has no child nodes, since these are returned as records.
+	 *
+	 * @return a node, not null
+	 */
+	public DataNode getRoot() {
+		return root;
+	}
+
+
+	/**
+	 * Returns true if there are more records. This method reads the next record
+	 * from the input if it was not read yet.
+	 *
+	 * @return true or false
+	 * @throws IOException       if an I/O operation failed
+	 * @throws SDAParseException if an SDA parsing error occurs
+	 */
+	public boolean hasNext() throws IOException, SDAParseException {
+		return record != null || (record = read()) != null;
+	}
+
+
+	/**
+	 * Returns the next record. The record has no parent node.
+	 *
+	 * @return a node, not null
+	 * @throws IOException            if an I/O operation failed
+	 * @throws SDAParseException      if an SDA parsing error occurs
+	 * @throws NoSuchElementException if there are no more records
+	 */
+	public DataNode next() throws IOException, SDAParseException {
+		if (! hasNext()) throw new NoSuchElementException("no more records");
+		final DataNode next = record; record = null;
+		return next;
+	}
+
+
+	/*
+	 * Private helper to build the next record from reader events. Returns null if
+	 * the end of input is reached without finding another record.
+	 */
+	private DataNode read() throws IOException, SDAParseException {
+
+		DataNode node = null; // the parent serves as a stack
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case START_NODE:
+				final DataNode child = reader.node();
+				if (node != null) node.add(child);
+				node = child; break;
+			case END_NODE:
+				if (node == null) break; // the end of the root node
+				final DataNode parent = node.getParent();
+				if (parent == null) return node; // the end of a record
+				node = parent; break;
+			default: // value has been set already
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Returns a sequential stream of the remaining records. Since a stream cannot
+	 * throw checked exceptions, an I/O exception is wrapped in an unchecked I/O
+	 * exception, and so is an SDA parse exception (which is then the cause of the
+	 * wrapped exception).
+	 *
+	 * @return a stream of nodes
+	 */
+	public Stream<DataNode> stream() {
+		return NodeStream.of(this::hasNext, this::next);
+	}
+
+}
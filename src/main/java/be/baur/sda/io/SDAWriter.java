@@ -0,0 +1,224 @@
+package be.baur.sda.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Objects;
+
+import be.baur.sda.SDA;
+
+/**
+ * An {@code SDAWriter} writes SDA content one node at a time, without creating
+ * a node tree, so output of any size can be written in constant memory. The
+ * output is the same as that of an {@code SDAFormatter} for the equivalent
+ * tree. For example:
+ *
+ * <pre>
+ * writer.startNode("greeting");
+ * writer.startNode("message"); writer.value("hello"); writer.endNode();
+ * writer.endNode();
+ * </pre>
+ *
+ * writes <code>greeting { message "hello" }</code> (on separate lines). A node
+ * without child nodes is written as a leaf, unless {@link #children()} is
+ * called, as in <code>node { }</code>. Node names are validated, as is the
+ * nesting of nodes, and a writer writes exactly one root node. A writer is not
+ * thread-safe.
+ *
+ * @see SDAFormatter
+ */
+public final class SDAWriter implements Closeable, Flushable {
+
+	private final OutputBuffer output; // the output stream, buffered
+	private final String[] indents; // the indentation for the first depths
+
+	private int depth = 0; // the number of open nodes
+	private boolean ended = false; // whether the root node has ended
+	private String name; // the name of the current node, null if written already
+	private String value; // the value of the current node, null if none
+	private boolean children; // whether the current node has a child list
+
+
+	/**
+	 * Creates a writer for a character output stream, which uses a tab character
+	 * for indentation.
+	 *
+	 * @param output an output stream, not null
+	 */
+	public SDAWriter(Writer output) {
+		this(output, "\t");
+	}
+
+
+	/**
+	 * Creates a writer for a character output stream, which uses consecutive
+	 * blanks for indentation.
+	 *
+	 * @param output an output stream, not null
+	 * @param depth  the indentation depth
+	 * @throws IllegalArgumentException if depth is less than 0.
+	 */
+	public SDAWriter(Writer output, int depth) {
+		this(output, blanks(depth));
+	}
+
+
+	/**
+	 * Creates a writer for a byte output stream, which writes in UTF-8 encoding
+	 * (without a charset encoder) and uses a tab character for indentation.
+	 *
+	 * @param output an output stream, not null
+	 */
+	public SDAWriter(OutputStream output) {
+		this(OutputBuffer.of(Objects.requireNonNull(output, "output stream must not be null")), "\t");
+	}
+
+
+	// Private constructor, called by the public ones.
+	private SDAWriter(Writer output, String indent) {
+		this(OutputBuffer.of(Objects.requireNonNull(output, "output writer must not be null")), indent);
+	}
+
+
+	// Private constructor, called by the others.
+	private SDAWriter(OutputBuffer output, String indent) {
+		this.output = output; this.indents = OutputBuffer.indents(indent);
+	}
+
+
+	// Private helper to return the indentation of the specified depth.
+	private static String blanks(int depth) {
+		if (depth < 0) throw
+			new IllegalArgumentException("invalid indentation depth (" + depth + ")");
+		return new String(new char[depth]).replace("\0", " ");
+	}
+
+
+	/**
+	 * Starts a node, which is a child of the current node, or the root node if
+	 * no node has been started yet.
+	 *
+	 * @param name a node name
+	 * @throws IOException              if an I/O operation failed
+	 * @throws IllegalArgumentException if the name is invalid
+	 * @throws IllegalStateException    if the root node has ended
+	 * @see SDA#isName
+	 */
+	public void startNode(String name) throws IOException {
+
+		if (! SDA.isName(name))
+			throw new IllegalArgumentException("invalid node name (" + name + ")");
+		if (ended)
+			throw new IllegalStateException("root node has ended");
+
+		if (this.name != null) header(true); // the parent gets complex content
+		this.name = name; value = null; children = false; ++depth;
+	}
+
+
+	/**
+	 * Sets the value of the current node. A null value is treated as an empty
+	 * string. This must be called before any child nodes are started.
+	 *
+	 * @param value a string value, may be null or empty
+	 * @throws IllegalStateException if there is no current node, or if a value
+	 *                               or child node has been written already
+	 */
+	public void value(String value) {
+
+		if (name == null)
+			throw new IllegalStateException(depth == 0 ? "no current node" : "value must precede child nodes");
+		if (this.value != null)
+			throw new IllegalStateException("value has been set already");
+		this.value = (value == null) ? "" : value;
+	}
+
+
+	/**
+	 * Gives the current node a child list, even if no child nodes follow, as in
+	 * <code>node { }</code>. Starting a child node does the same.
+	 *
+	 * @throws IllegalStateException if there is no current node
+	 */
+	public void children() {
+
+		if (depth == 0)
+			throw new IllegalStateException("no current node");
+		children = true;
+	}
+
+
+	/**
+	 * Ends the current node. The output is flushed when the root node ends.
+	 *
+	 * @throws IOException           if an I/O operation failed
+	 * @throws IllegalStateException if there is no current node
+	 */
+	public void endNode() throws IOException {
+
+		if (depth == 0)
+			throw new IllegalStateException("no current node");
+
+		if (name != null) { // no child nodes have been written
+			header(false);
+			if (children) output.write(" { }");
+		}
+		else {
+			output.indent(indents, depth - 1); output.write((char) SDA.RBRACE);
+		}
+		output.write('\n');
+
+		if (--depth == 0) {
+			ended = true; output.flush();
+		}
+	}
+
+
+	/*
+	 * Private helper that writes the name and value of the current node, followed
+	 * by a left brace and a new line if child nodes follow.
+	 */
+	private void header(boolean complex) throws IOException {
+
+		output.indent(indents, depth - 1); output.write(name);
+
+		final String value = (this.value == null) ? "" : this.value;
+		if (! value.isEmpty() || ! children && ! complex) {
+			output.write(' '); output.quote(value);
+		}
+
+		if (complex) output.write(" {\n");
+		name = null;
+	}
+
+
+	/**
+	 * Writes any buffered output, and flushes the output stream.
+	 *
+	 * @throws IOException if an I/O operation failed
+	 */
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+
+
+	/**
+	 * Writes any buffered output, and closes the output stream. Nodes that are
+	 * still open are not ended.
+	 *
+	 * @throws IOException           if an I/O operation failed
+	 * @throws IllegalStateException if nodes are still open, in which case the
+	 *                               output stream is closed all the same
+	 */
+	@Override
+	public void close() throws IOException {
+
+		output.close();
+		if (depth > 0)
+			throw new IllegalStateException(depth + " node(s) not ended");
+	}
+
+}
@@ -0,0 +1,394 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import be.baur.sda.SDA;
+
+/**
+ * The {@code Scanner} used by the SDA parser and reader. The scanner reads the
+ * input in blocks into a re-usable character buffer, and scans tokens by index
+ * range so that names and values are materialized exactly once. Node names are
+ * canonicalized, so equal names share one instance.
+ *
+ * @see SDAParser
+ * @see SDAReader
+ */
+final class Scanner {
+
+    private static final int BUFSIZE = 8192; // initial buffer size
+    private static final int MAXSYMBOLS = 4096; // the number of names in the symbol table before it is cleared
+    static final int EOF = -1; // end of input
+
+    private final Reader input; // the input stream, null if all input is buffered
+	int c; // current character in the stream
+	int p; // current position in the stream
+
+	private char[] buf; // the character buffer
+	private int pos = -1; // index of the current character in the buffer
+	private int lim = 0;  // index past the last valid character in the buffer
+	private int mark = -1; // start of the token being scanned, -1 if none
+	private final StringBuilder sb = new StringBuilder(); // to unescape values
+	private String[] symbols = new String[64]; // the symbol table for node names
+	private int symbolCount = 0; // the number of names in the symbol table
+	private int save = -1; // index before the character at the saved state (when fed)
+	private int saveP = 0; // position before the character at the saved state
+	private int base = 0; // the index in the input of the start of the buffer
+	private int lines = 0; // the number of line feeds discarded from the buffer
+	private int lineEnd = -1; // the index in the input of the last of those line feeds
+	private int counted = 0; // the buffer index up to which line feeds were counted for errors
+	private int countedLines = 0; // the number of line feeds in the input up to there
+	private int countedEnd = -1; // the index in the input of the last of those line feeds
+
+
+    /** Create and initialize a scanner at position 0. */
+    Scanner(Reader input) {
+    	this.input = input; buf = new char[BUFSIZE]; p=0;
+    }
+
+
+    /**
+     * Create a scanner for input that is entirely in memory. The buffer is never
+     * refilled, so slices of it remain valid after scanning (see {@link #getEncodedValue}).
+     */
+    Scanner(char[] chars, int length) {
+    	this(chars, 0, length);
+    }
+
+
+    /**
+     * Create a scanner for a range of input that is entirely in memory. Positions
+     * are counted from the start of the input, not from the start of the range.
+     */
+    Scanner(char[] chars, int offset, int end) {
+    	this.input = null; buf = chars; pos = offset - 1; lim = end; p = offset;
+    }
+
+
+    /**
+     * Create a scanner for input that is fed in chunks (see {@link #feed}). The
+     * scanner sees the end of input whenever it runs out of fed characters, and
+     * must then be restored to the last saved state once more input is fed.
+     */
+    Scanner() {
+    	this.input = null; buf = new char[BUFSIZE];
+    }
+
+
+    /** Returns the buffer, which holds all input if the input is in memory. */
+    char[] buffer() {
+    	return buf;
+    }
+
+
+    /** Returns the index past the last valid character in the buffer. */
+    int limit() {
+    	return lim;
+    }
+
+
+    /** Returns the buffer index of the current character. */
+    int index() {
+    	return pos;
+    }
+
+
+    /** Create a scanner for input that is read entirely into memory first. */
+    static Scanner readFully(Reader input) throws IOException {
+    	char[] chars = new char[BUFSIZE]; int n = 0, r;
+    	while ((r = input.read(chars, n, chars.length - n)) >= 0)
+    		if ((n += r) == chars.length) chars = Arrays.copyOf(chars, n << 1);
+    	return new Scanner(chars, n);
+    }
+
+
+    /**
+     * Append input to the buffer, discarding all characters before the saved
+     * state. Only to be used on a scanner for fed input.
+     */
+    void feed(char[] chars, int offset, int length) {
+
+    	// discard everything before this, except for the last character
+    	final int keep = Math.min(save + 1, lim - 1);
+    	if (keep > 0) {
+    		discard(keep); save -= keep;
+    	}
+    	if (lim + length > buf.length)
+    		buf = Arrays.copyOf(buf, Math.max(buf.length << 1, lim + length));
+
+    	System.arraycopy(chars, offset, buf, lim, length); lim += length;
+    }
+
+
+    /** Save the state of the scanner (at the current character). */
+    void save() {
+    	save = pos - 1; saveP = p - 1;
+    }
+
+
+    /** Restore the saved state of the scanner, and re-read the current character. */
+    void restore() throws IOException {
+    	pos = save; p = saveP; mark = -1; advance(false);
+    }
+
+
+	/**
+	 * Returns an SDA parse exception with a message that includes the error position,
+	 * and the line and column of the error. Lines are counted from where the
+	 * previous error was found, so recovering from many errors stays linear.
+	 *
+	 * @param offset position where the error was found
+	 * @param format a format message, and
+	 * @param args   arguments, as in {@link String#format}
+	 * @return SDAParseException
+	 */
+	final SDAParseException exception(int offset, String format, Object... args) {
+
+		// the error is at the character with index offset-1 in the input (1-based position)
+		final int end = Math.max(0, Math.min(offset - 1 - base, lim));
+
+		if (end < counted) { // count from the start of the buffer again
+			counted = 0; countedLines = lines; countedEnd = lineEnd;
+		}
+		for (int i = counted; i < end; i++) // continue counting lines up to the error
+			if (buf[i] == '\n') { ++countedLines; countedEnd = base + i; }
+		counted = end;
+
+		return new SDAParseException(String.format(format, args), offset, countedLines + 1, offset - 1 - countedEnd);
+	}
+
+
+	/**
+	 * Discard characters from the start of the buffer, counting line feeds on the way
+	 * so that the line and column of an error can be established later.
+	 */
+	private void discard(int keep) {
+
+		int n = 0; // count line feeds without branching, then find the last one
+		for (int i = 0; i < keep; i++) n += (buf[i] == '\n') ? 1 : 0;
+		if (n > 0) {
+			int i = keep; while (buf[--i] != '\n');
+			lines += n; lineEnd = base + i;
+		}
+
+		if (counted >= keep) counted -= keep; // the count for errors remains valid
+		else { counted = 0; countedLines = lines; countedEnd = lineEnd; }
+
+		base += keep; lim -= keep; pos -= keep; if (mark >= 0) mark -= keep;
+		System.arraycopy(buf, keep, buf, 0, lim);
+	}
+
+
+    /**
+     * Read the next block of input into the buffer, keeping any characters from
+     * the mark onwards (if set). Returns false if no more input is available.
+     */
+    private boolean fill() throws IOException {
+
+    	pos = lim; // the next character goes here
+    	if (input == null) return false; // all input is buffered
+    	
+    	// discard everything before this, except for the last character
+    	final int keep = Math.min((mark < 0) ? lim : mark, lim - 1);
+
+    	if (keep > 0) // shift retained characters to the start of the buffer
+    		discard(keep);
+    	else if (lim == buf.length) // token fills the buffer, so grow it
+    		buf = Arrays.copyOf(buf, buf.length << 1);
+
+    	int n;
+    	do { n = input.read(buf, lim, buf.length - lim); } while (n == 0);
+    	if (n < 0) return false;
+
+    	lim += n; return true;
+    }
+
+
+	/**
+	 * Advance the scanner to the next character in the input stream.
+	 * If <code>skipWhite</code> is true, whitespace will be skipped.
+	 */
+    void advance(boolean skipWhite) throws IOException {
+    	do {
+    		if (++pos < lim || fill()) c = buf[pos]; else c = EOF;
+    		++p;
+    	}
+    	while (skipWhite && Character.isWhitespace(c));
+    }
+
+
+    /** Check and abort when EOF is reached. */
+    void checkEOF() throws SDAParseException {
+    	if (c == EOF) throw exception(p-1, "unexpected end of input");
+    }
+
+
+    /**
+     * Returns the canonical name for the characters in the buffer, so that equal
+     * names share a single instance. Names are looked up in a symbol table
+     * directly from the buffer, so no string is created for a known name. The
+     * table is cleared when it is full, so it stays small for a scanner that
+     * reads an endless stream of (distinct) names.
+     */
+    private String symbol(int from, int len, int hash) {
+
+    	int i = (hash ^ (hash >>> 16)) & (symbols.length - 1); String s;
+    	while ((s = symbols[i]) != null) { // linear probing
+    		if (s.hashCode() == hash && s.length() == len) {
+    			int k = 0; while (k < len && s.charAt(k) == buf[from + k]) ++k;
+    			if (k == len) return s;
+    		}
+    		i = (i + 1) & (symbols.length - 1);
+    	}
+
+    	if (symbolCount == MAXSYMBOLS) { // start over, with the names that follow
+    		symbols = new String[64]; symbolCount = 0; i = (hash ^ (hash >>> 16)) & (symbols.length - 1);
+    	}
+    	s = new String(buf, from, len); symbols[i] = s;
+    	if (++symbolCount > (symbols.length >> 1)) { // keep the table sparse
+    		final String[] old = symbols; symbols = new String[old.length << 1];
+    		for (String o : old) if (o != null) {
+    			final int oh = o.hashCode();
+    			int j = (oh ^ (oh >>> 16)) & (symbols.length - 1);
+    			while (symbols[j] != null) j = (j + 1) & (symbols.length - 1);
+    			symbols[j] = o;
+    		}
+    	}
+    	return s;
+    }
+
+
+    /** Look for a valid node name and return it. */
+    String getNodeName() throws SDAParseException, IOException  {
+
+    	checkEOF();
+    	if (! SDA.isNameStart(c))
+    		throw exception(p, "node name cannot start with '%c'", c);
+
+    	boolean valid = false; // a name must have at least one non-underscore
+    	int h = 0; // the hash code of the name, computed like String.hashCode()
+    	mark = pos; // scan until we get something that is not part of a node name
+    	do { 
+    		valid |= (c != SDA.USCORE); h = 31 * h + c; advance(false); 
+    	} while (SDA.isNamePart(c));
+
+    	final String s = symbol(mark, pos - mark, h); mark = -1;
+
+    	if (Character.isWhitespace(c)) advance(true);
+    	checkEOF();  // dangling node names are not allowed
+    	
+    	if (! valid) throw exception(p, "invalid node name (%s)", s);
+    	return s;
+    }
+
+
+    /**
+     * Look for a quoted string and return it (without quotes) as an encoded value
+     * that is decoded when it is first used. This requires all input to be buffered.
+     */
+    CharSequence getEncodedValue() throws SDAParseException, IOException  {
+
+    	if (c != SDA.QUOTE)  // must start with quote
+    		throw exception(p, "unexpected character '%c'", c);
+
+    	boolean escaped = false; // whether the string contains escapes
+    	final int start = pos + 1; // the value starts after the quote
+
+    	// scan until we get the end quote or EOF, skip escaped characters
+    	while (true) {
+    		int i = pos + 1; char ch = 0;
+    		while (i < lim && (ch = buf[i]) != SDA.QUOTE && ch != SDA.BSLASH) ++i;
+    		p += i - pos - 1; pos = i - 1; // the last character of the run
+
+    		advance(false); checkEOF();
+    		if (c == SDA.QUOTE) break;
+    		advance(false); checkEOF(); escaped = true;
+    	}
+
+    	final CharSequence s = (pos == start) ? "" : new EncodedValue(buf, start, pos - start, escaped);
+    	advance(true); // skip over the end quote and white-space that follows
+    	return s;
+    }
+
+
+    /** Skip over a quoted string, without creating it. */
+    void skipQuotedString() throws SDAParseException, IOException  {
+
+    	if (c != SDA.QUOTE)  // must start with quote
+    		throw exception(p, "unexpected character '%c'", c);
+
+    	// scan runs of characters until we get the end quote or EOF, skip escaped characters
+    	while (true) {
+    		int i = pos + 1; char ch = 0;
+    		while (i < lim && (ch = buf[i]) != SDA.QUOTE && ch != SDA.BSLASH) ++i;
+    		p += i - pos - 1; pos = i - 1; // the last character of the run
+
+    		advance(false); checkEOF();
+    		if (c == SDA.QUOTE) break;
+    		if (c == SDA.BSLASH) { advance(false); checkEOF(); }
+    	}
+
+    	advance(true); // skip over the end quote and white-space that follows
+    }
+
+
+    /**
+     * Skip over complex content, from the left brace up to and including the
+     * matching right brace, by counting braces and skipping quoted strings only.
+     */
+    void skipComplexContent() throws SDAParseException, IOException  {
+
+    	int level = 0; // the number of open braces
+    	while (true) {
+    		if (c == SDA.QUOTE) {
+    			skipQuotedString(); checkEOF(); continue;
+    		}
+    		if (c == SDA.LBRACE) ++level;
+    		else if (c == SDA.RBRACE && --level == 0) break;
+
+    		int i = pos + 1; char ch = 0; // scan a run up to the next quote or brace
+    		while (i < lim && (ch = buf[i]) != SDA.QUOTE && ch != SDA.LBRACE && ch != SDA.RBRACE) ++i;
+    		p += i - pos - 1; pos = i - 1; // the last character of the run
+
+    		advance(false); checkEOF();
+    	}
+
+    	advance(true); // skip over the right brace and white-space that follows
+    }
+
+
+    /** Look for a quoted string and return it (without quotes). */
+    String getQuotedString() throws SDAParseException, IOException  {
+
+    	if (c != SDA.QUOTE)  // must start with quote
+    		throw exception(p, "unexpected character '%c'", c);
+
+    	boolean escaped = false; // whether the string contains escapes
+    	mark = pos + 1; // the first (unescaped) run starts after the quote
+
+    	// scan runs of characters until we get the end quote or EOF, handle escaped characters
+    	while (true) {
+    		int i = pos + 1; char ch = 0;
+    		while (i < lim && (ch = buf[i]) != SDA.QUOTE && ch != SDA.BSLASH) ++i;
+    		p += i - pos - 1; pos = i - 1; // the last character of the run
+
+    		advance(false); checkEOF();
+    		if (c == SDA.QUOTE) break;
+    		if (c != SDA.BSLASH) continue; // run was interrupted by a buffer refill
+
+    		if (! escaped) { sb.setLength(0); escaped = true; }
+    		sb.append(buf, mark, pos - mark);
+    		advance(false); checkEOF();
+    		mark = pos; // the escaped character starts the next run
+    	}
+
+    	final String s = escaped
+    		? sb.append(buf, mark, pos - mark).toString()
+    		: new String(buf, mark, pos - mark);
+    	mark = -1;
+
+    	advance(true); // skip over the end quote and white-space that follows
+    	return s;
+    }
+}
@@ -0,0 +1,77 @@
+package be.baur.sda.io;
+
+import java.io.Writer;
+
+/**
+ * A character output stream that collects its output in a string builder. This
+ * is like a {@code StringWriter}, without the synchronization of the string
+ * buffer behind it, since it is meant for use by a single thread.
+ */
+final class StringBuilderWriter extends Writer {
+
+	private final StringBuilder sb; // the output
+
+
+	/** Creates a writer with the specified initial capacity. */
+	StringBuilderWriter(int capacity) {
+		sb = new StringBuilder(capacity);
+	}
+
+
+	@Override
+	public void write(int c) {
+		sb.append((char) c);
+	}
+
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		sb.append(cbuf, off, len);
+	}
+
+
+	@Override
+	public void write(String str) {
+		sb.append(str);
+	}
+
+
+	@Override
+	public void write(String str, int off, int len) {
+		sb.append(str, off, off + len);
+	}
+
+
+	@Override
+	public Writer append(CharSequence csq) {
+		sb.append(csq); return this;
+	}
+
+
+	@Override
+	public Writer append(CharSequence csq, int start, int end) {
+		sb.append(csq, start, end); return this;
+	}
+
+
+	@Override
+	public Writer append(char c) {
+		sb.append(c); return this;
+	}
+
+
+	@Override
+	public void flush() {}
+
+
+	@Override
+	public void close() {}
+
+
+	/** Returns the output as a string. */
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+
+}
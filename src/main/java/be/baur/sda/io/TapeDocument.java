@@ -0,0 +1,462 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.Node;
+import be.baur.sda.SDA;
+
+/**
+ * A {@code TapeDocument} is a read-only SDA document that is stored in a few
+ * flat arrays rather than as a tree of data nodes. Nodes are kept in document
+ * order (a "tape"), where each node has a kind (leaf or parent), a name id, the
+ * end of its value in a single character array, and the size of its subtree.
+ * The children of a node follow right after it, and the next sibling of a node
+ * is found by skipping its subtree. This takes about 13 bytes per node plus the
+ * characters of the values, which is a fraction of the objects (node, value,
+ * child list and its array) that make up a {@code DataNode}.
+ * <p>
+ * Nodes are visited with a {@link Cursor}, which is a lightweight position in
+ * the document that implements the navigation methods of the {@code Node}
+ * interface. A document is immutable, so it is thread-safe.
+ *
+ * @see SDAParser#tape(java.io.Reader)
+ */
+public final class TapeDocument {
+
+	private static final byte LEAF = 0, PARENT = 1; // the kinds of node
+
+	private final String[] names; // the distinct node names, by id
+	private final Map<String, Integer> ids; // the ids of the node names
+	private final byte[] kinds; // the kind of each node
+	private final int[] nameIds; // the name id of each node
+	private final int[] valueEnds; // the end of the value of each node in the values
+	private final int[] sizes; // the number of nodes in the subtree of each node
+	private final char[] values; // the characters of all values
+	private final int count; // the number of nodes
+
+
+	// Private constructor, called by the builder.
+	private TapeDocument(Builder b) {
+		names = Arrays.copyOf(b.names, b.ids.size()); ids = b.ids;
+		kinds = Arrays.copyOf(b.kinds, b.count); nameIds = Arrays.copyOf(b.nameIds, b.count);
+		valueEnds = Arrays.copyOf(b.valueEnds, b.count); sizes = Arrays.copyOf(b.sizes, b.count);
+		values = Arrays.copyOf(b.values, b.length); count = b.count;
+	}
+
+
+	/*
+	 * Creates a document from the events of an SDA reader, which must be at the
+	 * start of its input.
+	 */
+	static TapeDocument read(SDAReader reader) throws IOException, SDAParseException {
+
+		final Builder builder = new Builder();
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case START_NODE:
+				builder.start(reader.getName(), reader.getValueSequence(), reader.isLeaf()); break;
+			case END_NODE:
+				builder.end(); break;
+			default: // the value has been added already
+			}
+		}
+		return new TapeDocument(builder);
+	}
+
+
+	/**
+	 * Creates a document from a data node and its children, which is the root of
+	 * the document.
+	 *
+	 * @param node a data node, not null
+	 * @return a document
+	 */
+	public static TapeDocument of(DataNode node) {
+
+		Objects.requireNonNull(node, "node must not be null");
+		final Builder builder = new Builder();
+		final List<Iterator<DataNode>> stack = new ArrayList<>(); // the children yet to be added
+
+		builder.start(node.getName(), node.getValue(), node.isLeaf());
+		stack.add(node.<DataNode>nodes().iterator());
+		while (! stack.isEmpty()) {
+			final Iterator<DataNode> i = stack.get(stack.size() - 1);
+			if (! i.hasNext()) {
+				builder.end(); stack.remove(stack.size() - 1); continue;
+			}
+			final DataNode child = i.next();
+			builder.start(child.getName(), child.getValue(), child.isLeaf());
+			stack.add(child.<DataNode>nodes().iterator());
+		}
+		return new TapeDocument(builder);
+	}
+
+
+	/**
+	 * Returns a cursor on the root node of this document.
+	 *
+	 * @return a cursor, not null
+	 */
+	public Cursor root() {
+		return new Cursor(0);
+	}
+
+
+	/**
+	 * Returns the number of nodes in this document.
+	 *
+	 * @return a positive integer
+	 */
+	public int size() {
+		return count;
+	}
+
+
+	/**
+	 * Returns the root node of this document in SDA notation.
+	 *
+	 * @see Cursor#toString
+	 */
+	@Override
+	public String toString() {
+		return root().toString();
+	}
+
+
+	/*
+	 * Returns the index of the parent of a node, or -1 for the root. The parent is
+	 * found by descending from the root, skipping the subtrees of the siblings of
+	 * each ancestor, so no parent references need to be kept.
+	 */
+	private int parent(int index) {
+		int parent = -1;
+		for (int i = 0; i != index; ) {
+			parent = i; ++i; // the first child
+			while (i + sizes[i] <= index) i += sizes[i]; // the next sibling
+		}
+		return parent;
+	}
+
+
+	/** Returns the value of a node. */
+	private String value(int index) {
+		final int start = (index == 0) ? 0 : valueEnds[index - 1];
+		return (start == valueEnds[index]) ? "" : new String(values, start, valueEnds[index] - start);
+	}
+
+
+	/** Returns the indexes of the children of a node. */
+	private int[] children(int index) {
+		int[] children = new int[8]; int n = 0;
+		final int end = index + sizes[index];
+		for (int i = index + 1; i < end; i += sizes[i]) {
+			if (n == children.length) children = Arrays.copyOf(children, n << 1);
+			children[n++] = i;
+		}
+		return Arrays.copyOf(children, n);
+	}
+
+
+	/**
+	 * A {@code Cursor} is a position in a tape document, which is a read-only view
+	 * of a node. Cursors are created as they are requested, and two cursors are
+	 * equal if they are on the same node of the same document. Methods that would
+	 * modify the document throw an {@code UnsupportedOperationException}.
+	 */
+	public final class Cursor implements Node {
+
+		private final int index; // the position of the node on the tape
+
+
+		// Private constructor, called by the document.
+		private Cursor(int index) {
+			this.index = index;
+		}
+
+
+		/**
+		 * Returns the document of this cursor.
+		 *
+		 * @return a document, not null
+		 */
+		public TapeDocument document() {
+			return TapeDocument.this;
+		}
+
+
+		@Override
+		public String getName() {
+			return names[nameIds[index]];
+		}
+
+
+		/**
+		 * Returns the value of this node, like {@code DataNode.getValue()}.
+		 *
+		 * @return the string value, not null, may be empty
+		 */
+		public String getValue() {
+			return value(index);
+		}
+
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T extends Node> T getParent() {
+			final int parent = parent(index);
+			return (parent < 0) ? null : (T) new Cursor(parent);
+		}
+
+
+		/**
+		 * Returns an unmodifiable list of cursors on the child nodes, which may be
+		 * empty.
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T extends Node> List<T> nodes() {
+			if (sizes[index] == 1) return Collections.emptyList();
+			return (List<T>) new Children(children(index));
+		}
+
+
+		/**
+		 * Returns true if this node has no child list. Like {@code DataNode}, this
+		 * method returns false for a node with an empty child list.
+		 */
+		@Override
+		public boolean isLeaf() {
+			return kinds[index] == LEAF;
+		}
+
+
+		@Override
+		public boolean isParent() {
+			return sizes[index] > 1;
+		}
+
+
+		/** @throws UnsupportedOperationException since a tape document is read-only */
+		@Override
+		public boolean add(Node node) {
+			throw new UnsupportedOperationException("tape document is read-only");
+		}
+
+
+		/** @throws UnsupportedOperationException since a tape document is read-only */
+		@Override
+		public boolean remove(Node node) {
+			throw new UnsupportedOperationException("tape document is read-only");
+		}
+
+
+		// more efficient than the default method, since names are compared by id
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T extends Node> T get(String name) {
+			final Integer id = ids.get(name);
+			if (id == null) return null;
+			final int end = index + sizes[index];
+			for (int i = index + 1; i < end; i += sizes[i])
+				if (nameIds[i] == id) return (T) new Cursor(i);
+			return null;
+		}
+
+
+		// more efficient than the default method, since names are compared by id
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T extends Node> List<T> getAll(String name) {
+			final List<T> list = new ArrayList<T>();
+			final Integer id = ids.get(name);
+			if (id == null) return list;
+			final int end = index + sizes[index];
+			for (int i = index + 1; i < end; i += sizes[i])
+				if (nameIds[i] == id) list.add((T) new Cursor(i));
+			return list;
+		}
+
+
+		// more efficient than the default method, which is recursive
+		@Override
+		public String path() {
+
+			final StringBuilder sb = new StringBuilder();
+			for (int i = 0, parent = -1; ; ) {
+				// count the siblings with the same name, before and after this one
+				int before = 0, after = 0;
+				if (parent >= 0) {
+					final int end = parent + sizes[parent];
+					for (int j = parent + 1; j < end; j += sizes[j])
+						if (nameIds[j] == nameIds[i]) { if (j < i) ++before; else if (j > i) ++after; }
+				}
+				sb.append('/').append(names[nameIds[i]]);
+				if (before + after > 0) sb.append('[').append(before + 1).append(']');
+
+				if (i == index) return sb.toString();
+				parent = i; ++i; // descend to the ancestor (or this node) in the next level
+				while (i + sizes[i] <= index) i += sizes[i];
+			}
+		}
+
+
+		/**
+		 * Returns a new data node with the content of this node and its children.
+		 *
+		 * @return a data node, not null
+		 */
+		public DataNode toDataNode() {
+
+			final int end = index + sizes[index];
+			DataNode[] open = new DataNode[16]; int[] ends = new int[16]; int depth = 0;
+			DataNode root = null;
+
+			for (int i = index; i < end; i++) {
+				while (depth > 0 && ends[depth - 1] == i) --depth; // the open parent nodes that end here
+				final DataNode node = new DataNode(names[nameIds[i]], value(i));
+				if (depth > 0) open[depth - 1].add(node); else root = node;
+				if (kinds[i] == PARENT) {
+					node.add(null);
+					if (depth == open.length) {
+						open = Arrays.copyOf(open, depth << 1); ends = Arrays.copyOf(ends, depth << 1);
+					}
+					open[depth] = node; ends[depth++] = i + sizes[i];
+				}
+			}
+			return root;
+		}
+
+
+		/**
+		 * Returns a string representing this node in SDA notation, exactly like
+		 * {@code DataNode.toString()}.
+		 */
+		@Override
+		public String toString() {
+
+			final StringBuilder sb = new StringBuilder();
+			final int end = index + sizes[index];
+			int[] ends = new int[16]; int depth = 0; // the ends of the open parent nodes
+
+			for (int i = index; i < end; i++) {
+				while (depth > 0 && ends[depth - 1] == i) { sb.append((char) SDA.RBRACE).append(' '); --depth; }
+
+				sb.append(names[nameIds[i]]);
+				final int start = (i == 0) ? 0 : valueEnds[i - 1];
+				if (start < valueEnds[i] || kinds[i] == LEAF)
+					sb.append(' ').append((char) SDA.QUOTE)
+						.append(SDA.encode(new String(values, start, valueEnds[i] - start)))
+						.append((char) SDA.QUOTE);
+
+				if (kinds[i] == PARENT) {
+					sb.append(' ').append((char) SDA.LBRACE).append(' ');
+					if (depth == ends.length) ends = Arrays.copyOf(ends, depth << 1);
+					ends[depth++] = i + sizes[i];
+				}
+				else if (i > index) sb.append(' ');
+			}
+			while (depth > 0) { sb.append((char) SDA.RBRACE); if (--depth > 0) sb.append(' '); }
+			return sb.toString();
+		}
+
+
+		@Override
+		public boolean equals(Object o) {
+			if (! (o instanceof Cursor)) return false;
+			final Cursor c = (Cursor) o;
+			return c.index == index && c.document() == TapeDocument.this;
+		}
+
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(TapeDocument.this) * 31 + index;
+		}
+	}
+
+
+	/** An unmodifiable list of cursors on the child nodes of a node. */
+	private final class Children extends AbstractList<Cursor> implements RandomAccess {
+
+		private final int[] children; // the indexes of the child nodes
+
+		Children(int[] children) {
+			this.children = children;
+		}
+
+		@Override
+		public Cursor get(int i) {
+			return new Cursor(children[i]);
+		}
+
+		@Override
+		public int size() {
+			return children.length;
+		}
+	}
+
+
+	/** The growing arrays of a document that is being built. */
+	private static final class Builder {
+
+		private String[] names = new String[16];
+		private final Map<String, Integer> ids = new HashMap<>();
+		private byte[] kinds = new byte[64];
+		private int[] nameIds = new int[64];
+		private int[] valueEnds = new int[64];
+		private int[] sizes = new int[64];
+		private char[] values = new char[256];
+		private int count = 0; // the number of nodes
+		private int length = 0; // the number of characters in the values
+		private int[] open = new int[16]; // the indexes of the open nodes
+		private int depth = 0; // the number of open nodes
+
+
+		/** Adds a node, which is open until it is ended. */
+		void start(String name, CharSequence value, boolean leaf) {
+
+			if (count == kinds.length) {
+				final int n = count << 1;
+				kinds = Arrays.copyOf(kinds, n); nameIds = Arrays.copyOf(nameIds, n);
+				valueEnds = Arrays.copyOf(valueEnds, n); sizes = Arrays.copyOf(sizes, n);
+			}
+
+			Integer id = ids.get(name);
+			if (id == null) {
+				id = ids.size(); ids.put(name, id);
+				if (id == names.length) names = Arrays.copyOf(names, id << 1);
+				names[id] = name;
+			}
+
+			if (value != null && value.length() > 0) {
+				final String s = value.toString();
+				if (length + s.length() > values.length)
+					values = Arrays.copyOf(values, Math.max(values.length << 1, length + s.length()));
+				s.getChars(0, s.length(), values, length); length += s.length();
+			}
+
+			kinds[count] = leaf ? LEAF : PARENT; nameIds[count] = id; valueEnds[count] = length;
+			if (depth == open.length) open = Arrays.copyOf(open, depth << 1);
+			open[depth++] = count++;
+		}
+
+
+		/** Ends the last node that was opened, which sets the size of its subtree. */
+		void end() {
+			final int index = open[--depth];
+			sizes[index] = count - index;
+		}
+	}
+
+}
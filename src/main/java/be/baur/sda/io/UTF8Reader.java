@@ -0,0 +1,153 @@
+package be.baur.sda.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@code UTF8Reader} decodes UTF-8 encoded bytes straight from a byte buffer
+ * (or a memory-mapped file channel, or an input stream that is read in blocks)
+ * into the buffer of the reading party. Since
+ * SDA syntax is pure ASCII, there is a fast path for ASCII characters, and there
+ * are no intermediate buffers. Malformed input is replaced by U+FFFD, just like
+ * an {@code InputStreamReader} would do.
+ */
+final class UTF8Reader extends Reader {
+
+	private static final long WINDOW = 1L << 28; // size of a mapped file region
+	private static final int BLOCK = 8192; // size of a block read from a stream
+	private static final char REPLACEMENT = '\uFFFD'; // for malformed input
+
+	private ByteBuffer in; // the input bytes
+	private final FileChannel channel; // the mapped file, null if none
+	private final InputStream stream; // the input stream, null if none
+	private boolean eof = false; // whether the end of the stream was reached
+	private final long size; // the size of the mapped file
+	private final long window; // the size of a mapped region
+	private long base; // the file position of the mapped region
+	private int pending = -1; // a low surrogate that did not fit, -1 if none
+
+
+	/** Creates a reader for the remaining bytes in a byte buffer. */
+	UTF8Reader(ByteBuffer input) {
+		this.in = input; this.channel = null; this.stream = null; this.size = 0; this.window = 0;
+	}
+
+
+	/** Creates a reader for an input stream, which is read in blocks. */
+	UTF8Reader(InputStream input) {
+		this.in = ByteBuffer.allocate(BLOCK); in.limit(0);
+		this.channel = null; this.stream = input; this.size = 0; this.window = 0;
+	}
+
+
+	/**
+	 * Creates a reader for a file channel, starting at its current position. The
+	 * file is mapped into memory one region at a time.
+	 */
+	UTF8Reader(FileChannel channel) throws IOException {
+		this(channel, WINDOW);
+	}
+
+
+	/**
+	 * Creates a reader for a file channel, which maps regions of the specified
+	 * size (of at least 4 bytes, the maximum length of a character).
+	 */
+	UTF8Reader(FileChannel channel, long window) throws IOException {
+		this.channel = channel; this.stream = null; this.size = channel.size();
+		this.window = Math.max(window, 4); this.base = Math.min(channel.position(), size);
+		this.in = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(size - base, this.window));
+	}
+
+
+	/*
+	 * Maps the next region of the file (or reads the next block of the stream)
+	 * when fewer than 4 bytes (the maximum length of a character) remain. Returns
+	 * false if the end of input is near.
+	 */
+	private boolean remap() throws IOException {
+
+		if (stream != null) { // keep the remaining bytes, and read after them
+			if (eof) return false;
+			in.compact(); 
+			final int r = stream.read(in.array(), in.position(), in.remaining());
+			if (r > 0) in.position(in.position() + r); else eof = (r < 0);
+			in.flip(); return true; // since the remaining bytes have moved
+		}
+
+		if (channel == null || base + in.limit() >= size)
+			return false; // the current region is the last one
+
+		base += in.position(); // and map from the current position onwards
+		in = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(size - base, window));
+		return true;
+	}
+
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+
+		int n = off; final int end = off + len;
+		if (len == 0) return 0;
+
+		if (pending >= 0) { // the low surrogate of the previous call
+			cbuf[n++] = (char) pending; pending = -1;
+		}
+
+		while (n < end) {
+
+			if (in.remaining() < 4) remap();
+			final ByteBuffer bb = in;
+			final int lim = bb.limit();
+			int i = bb.position();
+			if (i == lim) break; // end of input
+
+			int b; // decode ASCII until we get something else
+			while ((b = bb.get(i)) >= 0) {
+				cbuf[n++] = (char) b;
+				if (++i == lim || n == end) break;
+			}
+			bb.position(i);
+			if (b >= 0 || (lim - i < 4 && remap())) continue;
+
+			b &= 0xFF; // decode a multi-byte sequence, or replace it if malformed
+			final int avail = lim - i; // less than required only at the end of input
+			int cp = REPLACEMENT, k = 1; // the code point, and bytes in the sequence
+			if (b >= 0xC2 && b <= 0xF4 && avail > 1) {
+				final int cnt = (b >= 0xF0) ? 4 : (b >= 0xE0) ? 3 : 2;
+				final int b2 = bb.get(i + 1) & 0xFF; // second byte has a narrower range
+				if ((b2 & 0xC0) == 0x80 && (b != 0xE0 || b2 >= 0xA0)
+					&& (b != 0xF0 || b2 >= 0x90) && (b != 0xF4 || b2 < 0x90)) {
+					int v = b & (0x7F >> cnt); 
+					for (k = 1; k < cnt && k < avail; ++k) {
+						final int cb = bb.get(i + k);
+						if ((cb & 0xC0) != 0x80) break;
+						v = (v << 6) | (cb & 0x3F);
+					}
+					if (k == cnt && ! (v >= Character.MIN_SURROGATE && v <= Character.MAX_SURROGATE))
+						cp = v; // otherwise this is a malformed sequence of k bytes
+				}
+			}
+			bb.position(i + k);
+
+			if (cp < 0x10000)
+				cbuf[n++] = (char) cp;
+			else {
+				cbuf[n++] = Character.highSurrogate(cp);
+				if (n < end) cbuf[n++] = Character.lowSurrogate(cp);
+				else pending = Character.lowSurrogate(cp);
+			}
+		}
+
+		return (n == off) ? -1 : n - off;
+	}
+
+
+	/** Closing this reader has no effect; it does not own its input. */
+	@Override
+	public void close() {}
+
+}
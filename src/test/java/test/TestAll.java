@@ -7,12 +7,30 @@ public final class TestAll {
 		System.out.print("TestSDAFormatter: ");
 		test.TestFormatter.main(args);
 
+		System.out.print("\nTestSDAWriter: ");
+		test.TestSDAWriter.main(args);
+
 		System.out.print("\nTestNodeList: ");
 		test.TestNodeList.main(args);
 
+		System.out.print("\nTestTapeDocument: ");
+		test.TestTapeDocument.main(args);
+
 		System.out.print("\nTestSDAParser: ");
 		test.TestSDAParser.main(args);
 
+		System.out.print("\nTestIndexedSDAParser: ");
+		test.TestIndexedSDAParser.main(args);
+
+		System.out.print("\nTestSDAReader: ");
+		test.TestSDAReader.main(args);
+
+		System.out.print("\nTestSDAPushParser: ");
+		test.TestSDAPushParser.main(args);
+
+		System.out.print("\nTestBinarySDA: ");
+		test.TestBinarySDA.main(args);
+
 //		System.out.print("\nTestSDAParserAlt: ");
 //		test.TestSDAParserAlt.main(args);
 		
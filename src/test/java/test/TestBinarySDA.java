@@ -0,0 +1,89 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.SDA;
+import be.baur.sda.io.BinarySDAFormatter;
+import be.baur.sda.io.BinarySDAParser;
+
+public final class TestBinarySDA {
+
+	public static void main(String[] args) throws Exception {
+
+		BinarySDAFormatter formatter = new BinarySDAFormatter();
+		BinarySDAParser parser = new BinarySDAParser();
+		
+		// round trip from text to binary and back
+		Test s = new Test(str -> {
+			try {
+				return parser.parse(formatter.format(SDA.parse(str))).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		
+		s.ts1("S01", "empty \"\"", null);
+		s.ts1("S02", "empty { }", null);
+		s.ts1("S03", "a \"1\" { b { c \"\\\"\" } b \"\\\\\" { } }", null);
+		s.ts1("S04", "a { v \"\u00E9\u20AC\uD83D\uDE00\uD800\" }", "a { v \"\u00E9\u20AC\uD83D\uDE00?\" }");
+		
+		StringBuilder sb = new StringBuilder("a {"); // a long value and a deep node
+		for (int i = 0; i < 1000; i++) sb.append(" b \"" + i + "\" {");
+		for (int i = 0; i < 1000; i++) sb.append(" }");
+		String deep = sb.append(" v \"" + new String(new char[200]).replace("\0", "xyz") + "\" }").toString();
+		s.ts1("S05", deep, null);
+
+		// a node far deeper than the call stack allows for recursion
+		DataNode root = new DataNode("a"), node = root;
+		for (int i = 0; i < 20000; i++) {
+			DataNode child = new DataNode("b", i % 2 == 0 ? "" : "v"); node.add(child); node = child;
+		}
+		node.add(new DataNode("c"));
+		Test d = new Test(str -> str);
+		d.ts1("D01", parser.parse(formatter.format(root)).toString(), root.toString());
+
+		// two consecutive messages in a stream
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		formatter.format(os, SDA.parse("a \"1\""));
+		formatter.format(os, SDA.parse("b { a \"2\" }"));
+		ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+		Test m = new Test(str -> {
+			try {
+				return parser.parse(is).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		m.ts1("S06", "", "a \"1\"");
+		m.ts1("S07", "", "b { a \"2\" }");
+		m.ts1("S08", "", "error at position 0: unexpected end of input");
+		
+		// test invalid input, given as a message with some bytes replaced
+		byte[] msg = formatter.format(SDA.parse("a { a \"1\" }")); // 4 + 1 + 7 bytes
+		Test f = new Test(str -> {
+			String[] edit = str.split(" ");
+			byte[] bytes = Arrays.copyOf(msg, Integer.parseInt(edit[0]));
+			for (int i = 1; i < edit.length; i += 2)
+				bytes[Integer.parseInt(edit[i])] = (byte) Integer.parseInt(edit[i+1]);
+			try {
+				return parser.parse(bytes).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		}, "error at position ");
+		
+		f.ts1("F01", "3", "3: unexpected end of input");
+		f.ts1("F02", "12 0 65", "1: invalid binary SDA header");
+		f.ts1("F03", "11", "11: unexpected end of input");
+		f.ts1("F04", "13", "13: excess input after root node");
+		f.ts1("F05", "12 4 8", "12: unexpected end of input");
+		f.ts1("F06", "12 8 0", "10: excess input after root node");
+		f.ts1("F07", "12 9 8", "10: invalid name reference (2)");
+		f.ts1("F08", "12 7 49", "8: invalid node name (1)");
+		f.ts1("F09", "12 11 -1", "12: invalid value encoding");
+	}
+
+}
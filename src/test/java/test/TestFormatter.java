@@ -1,6 +1,18 @@
 package test;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 
 import be.baur.sda.DataNode;
 import be.baur.sda.SDA;
@@ -11,6 +23,42 @@ public final class TestFormatter {
 	private static SDAFormatter formatter = new SDAFormatter();
 	private static SDAFormatter formatter4 = new SDAFormatter(4);
 	
+	// the formatter as it was before single-pass escaping and cached indents, for comparison
+	private static void legacy(Writer output, DataNode node, String indent) throws IOException {
+		
+		final boolean isLeaf = node.isLeaf();
+		output.append(indent).append(node.getName());
+		if (! node.getValue().isEmpty() || isLeaf)
+			output.append(" ").append((char) SDA.QUOTE)
+			  .append(node.getValue().replace("\\", "\\\\").replace("\"", "\\\""))
+			  .append((char) SDA.QUOTE);
+		if (! isLeaf) {
+			List<DataNode> nodes = node.nodes();
+			boolean empty = nodes.isEmpty();
+			output.append(" ").append((char)SDA.LBRACE).append((empty ? " " : "\n"));
+			if (! empty) for (DataNode child : nodes) 
+				legacy(output, child, indent + "\t");
+			output.append(empty ? "" : indent).append((char) SDA.RBRACE);
+		}
+		output.append("\n");
+	}
+	
+	// toString() as it was before rendering into a single buffer, for comparison
+	private static String legacy(DataNode node) {
+		
+		final StringBuilder sb = new StringBuilder(node.getName());
+		if (! node.getValue().isEmpty() || node.isLeaf()) 
+			sb.append(" ").append((char) SDA.QUOTE)
+				.append(node.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append((char) SDA.QUOTE);
+		if (! node.isLeaf()) {
+			sb.append(" ").append((char) SDA.LBRACE).append(" ");
+			for (DataNode child : node.<DataNode>nodes()) 
+				sb.append(legacy(child)).append(" ");
+			sb.append((char) SDA.RBRACE);
+		}
+		return sb.toString();
+	}
+	
 	public static void main(String[] args) throws Exception {
 		
 		Test t = new Test(s -> {
@@ -46,21 +94,128 @@ public final class TestFormatter {
 				"}\n"
 		);
 	
-		// test performance
+		// compact output, which must parse to the same node
+		SDAFormatter compact = SDAFormatter.compact();
+		t.ts1("C01", compact.format(node), "node\"1\"{node2{empty1\"\"empty2{}empty\"3\"{}}}");
+		t.ts1("C02", compact.format(book), "addressbook{contact\"1\"{firstname\"Alice\"" 
+			+ "phonenumber\"06-11111111\"phonenumber\"06-22222222\"}contact\"2\"{firstname\"Bob\""
+			+ "phonenumber\"06-33333333\"phonenumber\"06-44444444\"}}");
+		t.ts1("C03", compact.format(SDA.parse("a \"\\\\ \\\"\"")), "a\"\\\\ \\\"\"");
+		t.ts1("C04", SDA.parse(compact.format(book)).toString(), book.toString());
+
+		// a large document, with escapes and deep nesting, as before
+		StringBuilder sb = new StringBuilder("addressbook {\n");
+		for (int i = 1; i <= 2000; i++) 
+			sb.append("\tcontact \"" + i + "\" {\n\t\tfirstname \"Alice\"\n")
+			  .append("\t\tnote \"The \\\\ is called a \\\"backslash\\\" in English.\"\n\t\tempty { }\n\t}\n");
+		for (int i = 1; i <= 40; i++) sb.append("deep {");
+		for (int i = 1; i <= 40; i++) sb.append("}");
+		DataNode big = SDA.parse(sb.append("}").toString());
+		StringWriter sw = new StringWriter(); legacy(sw, big, "");
+		t.ts1("S03", formatter.format(big), sw.toString());
+		t.ts1("C05", SDA.parse(compact.format(big)).toString(), big.toString());
+	
+		// deep nesting, far beyond what recursion allows, without and with indentation
+		sb = new StringBuilder(); StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 200000; i++) { sb.append("a{"); expected.append("a {\n"); }
+		sb.append("b\"\""); expected.append("b \"\"\n");
+		for (int i = 0; i < 200000; i++) { sb.append('}'); expected.append("}\n"); }
+		DataNode deepest = SDA.parse(sb.toString());
+		t.ts1("S04", new SDAFormatter(0).format(deepest), expected.toString());
+		t.ts1("C06", compact.format(deepest), sb.toString());
+		sb.setLength(0); expected.setLength(0); StringBuilder tabs = new StringBuilder();
+		for (int i = 0; i < 3000; i++) { sb.append("a{"); expected.append(tabs).append("a {\n"); tabs.append('\t'); }
+		sb.append("b{}"); expected.append(tabs).append("b { }\n");
+		for (int i = 0; i < 3000; i++) { sb.append('}'); tabs.setLength(tabs.length() - 1); expected.append(tabs).append("}\n"); }
+		t.ts1("S05", formatter.format(SDA.parse(sb.toString())), expected.toString());
+
+		// toString() renders in a single buffer, so it must handle deep nesting
+		t.ts1("T01", big.toString(), legacy(big));
+		t.ts1("T02", SDA.parse("a \"\\\\\" { b { } c \"\\\"x\" d \"\" e { f \"\" } }").toString(), 
+				"a \"\\\\\" { b { } c \"\\\"x\" d \"\" e { f \"\" } }");
+		DataNode deep = new DataNode("deep"), leaf = deep;
+		for (int i = 1; i < 10000; i++) { DataNode n = new DataNode("deep"); leaf.add(n); leaf = n; }
+		leaf.add(null);
+		sb = new StringBuilder();
+		for (int i = 1; i <= 10000; i++) sb.append("deep { ");
+		for (int i = 1; i < 10000; i++) sb.append("} ");
+		t.ts1("T03", deep.toString(), sb.append("}").toString());
+
+		// UTF-8 output, which must be the same as the encoded characters
+		DataNode utf = SDA.parse("a { b \"\u00E9\u20AC\uD83D\uDE00\" c \"\\\"\" { } }");
+		utf.add(new DataNode("d", "\uD800")); // an unpaired surrogate
+		byte[] utfbytes = formatter.format(utf).getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		formatter.format(os, utf);
+		t.ts1("U01", Arrays.equals(os.toByteArray(), utfbytes) + "", "true");
+		os.reset(); formatter.format(Channels.newChannel(os), utf);
+		t.ts1("U02", Arrays.equals(os.toByteArray(), utfbytes) + "", "true");
+		ByteBuffer bb = ByteBuffer.allocate(100); formatter.format(bb, utf);
+		t.ts1("U03", Arrays.equals(Arrays.copyOf(bb.array(), bb.position()), utfbytes) + "", "true");
+		os.reset(); formatter.format(os, big);
+		t.ts1("U04", new String(os.toByteArray(), StandardCharsets.UTF_8), formatter.format(big));
+		File file = File.createTempFile("utf", ".sda"); file.deleteOnExit();
+		formatter.format(file, utf);
+		t.ts1("U05", SDA.parse(file).toString(), SDA.parse(new String(utfbytes, StandardCharsets.UTF_8)).toString());
+
+		// test performance, against the legacy formatter
 		
-//		UnitTestPerformance<Node> perf = new UnitTestPerformance<Node>(
-//			n -> { n.toString(); }   // test toString
-//		);
-//		perf.run("\nP01", book, 25000, 25);
+		UnitTestPerformance<DataNode> perfLegacy = new UnitTestPerformance<DataNode>(n -> {
+			try {
+				legacy(new StringWriter(), n, "");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		perfLegacy.run("\nP01", big, 200, 11);
+
+		UnitTestPerformance<DataNode> perf = new UnitTestPerformance<DataNode>(n -> {
+			try {
+				formatter.format(new StringWriter(), n);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		perf.run("\nP02", big, 200, 11);
+
+		// toString() and format(node), which render into a single buffer
+		UnitTestPerformance<DataNode> perfString = new UnitTestPerformance<DataNode>(n -> {
+			legacy(n);
+		});
+		perfString.run("\nP05", big, 200, 11);
+		perfString = new UnitTestPerformance<DataNode>(n -> {
+			n.toString();
+		});
+		perfString.run("\nP06", big, 200, 11);
+		perfString = new UnitTestPerformance<DataNode>(n -> {
+			try {
+				formatter.format(n);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		perfString.run("\nP07", big, 200, 11);
 
-//		UnitTestPerformance<Node> perf = new UnitTestPerformance<Node>(n -> {
-//			try {
-//				formatter.format(book); // test formatter
-//			} catch (IOException e) {
-//				e.printStackTrace();
-//			}
-//		});
-//		perf.run("\nP02", node, 25000, 25);
+		// and to a file, through a chain of writers and directly
+		for (DataNode contact : big.<DataNode>getAll("contact")) // not only ASCII
+			contact.add(new DataNode("lastname", "Gau\u00DF-M\u00FCller"));
+		UnitTestPerformance<DataNode> perfWriter = new UnitTestPerformance<DataNode>(n -> {
+			try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+				formatter.format(w, n);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		perfWriter.run("\nP03", big, 100, 11);
+
+		UnitTestPerformance<DataNode> perfBytes = new UnitTestPerformance<DataNode>(n -> {
+			try {
+				formatter.format(file, n);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		perfBytes.run("\nP04", big, 100, 11);
 
 	}
 }
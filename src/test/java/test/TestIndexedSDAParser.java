@@ -0,0 +1,131 @@
+package test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.io.IndexedSDAParser;
+import be.baur.sda.io.Parser;
+import be.baur.sda.io.SDAParser;
+
+public final class TestIndexedSDAParser {
+
+	private static IndexedSDAParser parser = new IndexedSDAParser();
+	private static SDAParser sdaparser = new SDAParser();
+
+	// parses a file, and returns the node or the error (without the file name) as a string
+	private static String parse(File file, Parser<DataNode> parser) {
+		try {
+			return parser.parse(file).toString();
+		} catch (Exception e) {
+			return e.getLocalizedMessage().replace(file.toString(), "file");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		// the corpus of the SDA parser, from a string and from bytes
+		Test s = new Test(str -> {
+			try {
+				return parser.parse(str).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		TestSDAParser.corpus(s, new Test(s.strfun, "error at position "));
+
+		Test b = new Test(str -> {
+			try {
+				return parser.parse(str.getBytes(StandardCharsets.UTF_8)).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		TestSDAParser.corpus(b, new Test(b.strfun, "error at position "));
+
+		// results must be identical to those of the SDA parser
+		Test i = new Test(str -> {
+			String result;
+			try {
+				result = parser.parse(str).toString();
+			} catch (Exception e) {
+				result = e.getLocalizedMessage();
+			}
+			try {
+				return result.equals(sdaparser.parse(str).toString()) ? "same" : result;
+			} catch (Exception e) {
+				return result.equals(e.getLocalizedMessage()) ? "same" : result;
+			}
+		});
+
+		String pad = new String(new char[60]).replace("\0", " "); // to cross blocks of 64 bytes
+		i.ts1("I01", "a \"\u00E9\u20AC\uD83D\uDE00\\\"{}\" { b { c \"\\\\\" } }", "same");
+		i.ts1("I02", "a {" + pad + "b \"\\\\\\\"" + pad + "\\\\\" c { } }", "same");
+		i.ts1("I03", pad + "a \"" + pad.substring(3) + "\\\"\" {" + pad + "}", "same");
+		i.ts1("I04", "a\u3000{ b \"1\" }", "same"); // non-ASCII white space
+		i.ts1("I05", "a { b\"1\"c\"2\"{d{}}}", "same");
+		i.ts1("I06", "a { b \"1\" c }", "same");
+		i.ts1("I07", "a { b \"\uD800\" }", "same"); // unpaired surrogate
+		i.ts1("I08", "a { b \"1\" \"2\" }", "same");
+		i.ts1("I09", "a { b \"1\\", "same");
+
+		StringBuilder sb = new StringBuilder("addressbook {\n");
+		for (int k = 1; k <= 2000; k++) 
+			sb.append("\tcontact \"" + k + "\" {\n\t\tfirstname \"Alice\"\n")
+			  .append("\t\tnote \"The \\\\ is called a \\\"backslash\\\" in English.\"\n\t}\n");
+		String big = sb.append("}").toString(); // about 200 KB
+		i.ts1("I10", big, "same");
+
+		// from a file, which is read at its length, or beyond if it is compressed
+		Test f = new Test(str -> {
+			try {
+				File file = File.createTempFile("idx", ".sda"); file.deleteOnExit();
+				Files.write(file.toPath(), str.getBytes(StandardCharsets.UTF_8));
+				File gzip = File.createTempFile("idx", ".sda.gz"); gzip.deleteOnExit();
+				try (OutputStream os = new GZIPOutputStream(new FileOutputStream(gzip))) {
+					os.write(str.getBytes(StandardCharsets.UTF_8));
+				}
+				String result = parse(file, parser);
+				if (! result.equals(parse(gzip, parser))) return "compressed differs";
+				return result.equals(parse(file, sdaparser)) ? "same" : result;
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		f.ts1("I11", "a { b \"\u00E9\" }", "same");
+		f.ts1("I12", big, "same");
+		f.ts1("I13", "", "same");
+		f.ts1("I14", big + "x", "same");
+
+		// test performance, against the SDA parser
+		UnitTestPerformance<byte[]> perf = new UnitTestPerformance<byte[]>(bs -> {
+			try {
+				parser.parse(bs);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		UnitTestPerformance<byte[]> perfSDA = new UnitTestPerformance<byte[]>(bs -> {
+			try {
+				sdaparser.parse(bs);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+
+		byte[] bytes = big.getBytes(StandardCharsets.UTF_8);
+		perfSDA.run("\nP01", bytes, 50, 21); // SDAParser
+		perf.run("\nP02", bytes, 50, 21);
+
+		String contacts = "\tcontact \"1\" {\r\n\t\tfirstname \"Alice\"\r\n\t\tphonenumber \"06-11111111\"\r\n"
+			+ "\t\tphonenumber \"06-22222222\"\r\n\t}\r\n";
+		bytes = ("addressbook {\r\n" + contacts + contacts + contacts + contacts + "}").getBytes(StandardCharsets.UTF_8);
+		perfSDA.run("\nP03", bytes, 100000, 11); // SDAParser, about 1 KB
+		perf.run("\nP04", bytes, 100000, 11);
+	}
+
+}
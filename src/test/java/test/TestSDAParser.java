@@ -1,9 +1,41 @@
 package test;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
+import be.baur.sda.DataNode;
 import be.baur.sda.Node;
+import be.baur.sda.SDA;
+import be.baur.sda.io.SDADocumentReader;
+import be.baur.sda.io.SDAHandler;
+import be.baur.sda.io.SDAParseException;
 import be.baur.sda.io.SDAParser;
+import be.baur.sda.io.SDARecordReader;
+import be.baur.sda.util.Result;
+import be.baur.sda.util.Results;
 
 public final class TestSDAParser {
 
@@ -37,6 +69,441 @@ public final class TestSDAParser {
 		Test s = new Test(strfun);
 		Test f = new Test(strfun, "error at position ");
 
+		corpus(s, f);
+		
+		// test deferred values
+		SDAParser deferred = new SDAParser(); deferred.setDeferredValues(true);
+		Test l = new Test(str -> {
+			try {
+				return deferred.parse(str).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		l.ts1("L01", "  empty  \"\"  {  }  ", "empty { }");
+		l.ts1("L02", "_1m \"yo\" { t1_ \"hello  world\" } ", "_1m \"yo\" { t1_ \"hello  world\" }");
+		l.ts1("L03", "example \"The \\\\ is called a \\\"backslash\\\" in English.\"", null);
+		l.ts1("L04", "trailing \"abc", "error at position 13: unexpected end of input");
+		
+		// test parallel parsing
+		StringBuilder big = new StringBuilder("addressbook \"big\" {\n");
+		for (int i = 1; i <= 20000; i++) 
+			big.append("\tcontact \"" + i + "\" {\n\t\tfirstname \"Alice\"\n\t\tnote \"\\\"}\\\\\"\n\t}\n")
+			   .append("\tphonenumber \"" + i + "\"\n");
+		ForkJoinPool pool = new ForkJoinPool(4);
+		String expected = parser.parse(big.toString() + "}").toString();
+		Test c = new Test(str -> {
+			try {
+				return parser.parse(new StringReader(str), pool).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		c.ts1("C01", big.toString() + "}", expected);
+		c.ts1("C02", big.toString() + "} ", expected);
+		c.ts1("C03", big.toString(), "error at position " + big.length() + ": unexpected end of input");
+		c.ts1("C04", big.toString() + "}x", "error at position " + (big.length() + 2) + ": excess input after root node");
+		c.ts1("C05", big.toString() + "\tb@d \"x\"\n}", "error at position " + (big.length() + 3) + ": unexpected character '@'");
+		int m = big.indexOf("\tphonenumber \"10000\""); big.insert(m + 1, "@");
+		c.ts1("C06", big.toString() + "}", "error at position " + (m + 2) + ": node name cannot start with '@'");
+		
+		// test name sharing
+		DataNode list = parser.parse("list { item \"1\" item \"2\" }");
+		new Test(str -> str).ts1("N01", "" + (list.nodes().get(0).getName() == list.nodes().get(1).getName()), "true");
+		StringBuilder distinct = new StringBuilder("list {"); // more than the symbol table holds
+		for (int i = 0; i < 10000; i++) distinct.append(" n").append(i).append(" \"").append(i).append('"');
+		String many = distinct.append(" n0 \"0\" n9999 \"1\" }").toString();
+		list = parser.parse(many);
+		new Test(str -> str).ts1("N02", list.toString(), many);
+		new Test(str -> str).ts1("N03", "" + (list.nodes().get(9999).getName() == list.nodes().get(10001).getName()), "true");
+		
+		// test depth
+		final int depth = 1000000;
+		StringBuilder deep = new StringBuilder(depth * 4);
+		for (int i = 0; i < depth; i++) deep.append("a{");
+		for (int i = 0; i < depth; i++) deep.append("}");
+		DataNode node = parser.parse(deep.toString()); int d = 1;
+		while (node.isParent()) { node = node.get("a"); ++d; }
+		new Test(str -> str).ts1("D01", "" + d, "" + depth);
+		
+		SDAParser shallow = new SDAParser(); shallow.setMaxDepth(2);
+		Test sf = new Test(str -> {
+			try {
+				return shallow.parse(str).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		}, "error at position ");
+		sf.ts1("D02", "a{ b{ c{} } }", "7: maximum depth (2) exceeded");
+		
+		// test handler
+		Function<String, String> hndfun = str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				parser.parse(new StringReader(str), new SDAHandler() {
+					public void startNode(String name, String value) {
+						sb.append("<" + name + (value == null ? "" : "=" + value));
+					}
+					public void endNode(String name) {
+						sb.append(name + ">");
+					}
+					public void error(SDAParseException e) {
+						sb.append("!");
+					}
+				});
+				return sb.toString();
+			} catch (Exception e) {
+				return sb.toString() + e.getLocalizedMessage();
+			}
+		};
+		
+		Test h = new Test(hndfun);
+		h.ts1("H01", "a\"1\"{b{}c\"\"}", "<a=1<bb><c=c>a>");
+		h.ts1("H02", "a{ b{}", "<a<bb>!error at position 6: unexpected end of input");
+		
+		// test records
+		Test r = new Test(str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				SDARecordReader records = parser.records(new StringReader(str));
+				sb.append(records.getRoot()).append(":");
+				while (records.hasNext()) sb.append(" ").append(records.next());
+				return sb.toString();
+			} catch (Exception e) {
+				return sb.toString() + " " + e.getLocalizedMessage();
+			}
+		});
+		r.ts1("R01", "a \"1\" { b \"2\" c { d \"3\" } e{} }", "a \"1\" { }: b \"2\" c { d \"3\" } e { }");
+		r.ts1("R02", "a \"1\"", "a \"1\":");
+		r.ts1("R03", "a { b \"2\" c { d \"3\" }", "a { }: b \"2\" c { d \"3\" } error at position 21: unexpected end of input");
+		r.ts1("R04", "a { b \"2\" } c", "a { }: b \"2\" error at position 13: excess input after root node");
+		
+		// test documents
+		Test md = new Test(str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				SDADocumentReader documents = parser.documents(new StringReader(str));
+				while (documents.hasNext()) sb.append("[").append(documents.next()).append("]");
+				return sb.toString();
+			} catch (Exception e) {
+				return sb.toString() + e.getLocalizedMessage();
+			}
+		});
+		md.ts1("M01", "a \"1\" b { c \"2\" }a{}", "[a \"1\"][b { c \"2\" }][a { }]");
+		md.ts1("M02", " \n ", "");
+		md.ts1("M03", "a{} b{", "[a { }]error at position 6: unexpected end of input");
+		md.ts1("M04", "a{} }", "[a { }]error at position 5: node name cannot start with '}'");
+		
+		// and both as streams, which wrap an exception
+		Test st = new Test(str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				if (str.startsWith("root ")) 
+					parser.records(new StringReader(str)).stream().forEach(n -> sb.append("[").append(n).append("]"));
+				else parser.documents(new StringReader(str)).stream().forEach(n -> sb.append("[").append(n).append("]"));
+				return sb.toString();
+			} catch (UncheckedIOException e) {
+				return sb.toString() + e.getCause().getMessage();
+			} catch (Exception e) {
+				return sb.toString() + e.getLocalizedMessage();
+			}
+		});
+		st.ts1("M05", "root { b \"2\" c { } }", "[b \"2\"][c { }]");
+		st.ts1("M06", "root { b \"2\" c", "[b \"2\"]error at position 14: unexpected end of input");
+		st.ts1("M07", "a \"1\" b { c \"2\" }", "[a \"1\"][b { c \"2\" }]");
+		st.ts1("M08", "a{} b{", "[a { }]error at position 6: unexpected end of input");
+		
+		// test error recovery
+		Test er = new Test(str -> {
+			Results<SDAParseException> errors = new Results<>();
+			try {
+				StringBuilder sb = new StringBuilder(String.valueOf(parser.parse(new StringReader(str), errors)));
+				for (Result<SDAParseException> error : errors) sb.append(" | ").append(error.getMessage());
+				return sb.toString();
+			} catch (Exception x) {
+				return x.getLocalizedMessage();
+			}
+		});
+		er.ts1("E01", "a { b \"1\" c@d \"2\" 9x { y \"1\" } e \"3\" }", 
+			"a { b \"1\" e \"3\" } | error at position 12: unexpected character '@' | error at position 19: node name cannot start with '9'");
+		er.ts1("E02", "a { b { c } d \"4\" }", "a { b { } d \"4\" } | error at position 11: unexpected character '}'");
+		er.ts1("E03", "a { b \"1\" c { d \"2\"", "a { b \"1\" c { d \"2\" } } | error at position 19: unexpected end of input");
+		er.ts1("E04", "a { } b { }", "a { } | error at position 7: excess input after root node");
+		er.ts1("E05", "", "null | error at position 0: unexpected end of input");
+		er.ts1("E06", "} a { }", "a { } | error at position 1: node name cannot start with '}'");
+		
+		// test the line and column of errors, from a reader and from memory
+		Test lc = new Test(str -> {
+			String result[] = new String[2];
+			for (int k = 0; k < 2; k++) try {
+				if (k == 0) parser.parse(new StringReader(str)); else parser.parse(str);
+				result[k] = "no error";
+			} catch (SDAParseException e) {
+				result[k] = e.getErrorOffset() + " " + e.getErrorLine() + ":" + e.getErrorColumn();
+			} catch (Exception e) {
+				result[k] = e.getLocalizedMessage();
+			}
+			return result[0].equals(result[1]) ? result[0] : result[0] + " <> " + result[1];
+		});
+		String lines = new String(new char[2000]).replace("\0", "\tb \"1\"\n"); // 14 KB
+		lc.ts1("G01", "a {\n\tb \"1\"\n\tc }", "15 3:4");
+		lc.ts1("G02", "a {\r\n\tb \"1\"\r\n\tc }", "17 3:4");
+		lc.ts1("G03", "a {\n" + lines + "\tc }", "14008 2002:4"); // after discarding the buffer
+		lc.ts1("G04", "\n\n\n}", "4 4:1");
+		SDAParser inmemory = new SDAParser();
+		inmemory.setDeferredValues(true); // recovers from errors in memory
+		for (SDAParser psr : new SDAParser[] { parser, inmemory }) {
+			Test le = new Test(str -> {
+				Results<SDAParseException> errors = new Results<>();
+				try {
+					psr.parse(new StringReader(str), errors);
+					StringBuilder sb = new StringBuilder();
+					for (Result<SDAParseException> error : errors) 
+						sb.append(error.getValue().getErrorLine()).append(':').append(error.getValue().getErrorColumn()).append(' ');
+					return sb.toString().trim();
+				} catch (Exception x) {
+					return x.getLocalizedMessage();
+				}
+			});
+			le.ts1("G05", "a {\n\tc@ \"2\"\n\t9 \"3\"\n\td }", "2:3 3:2 4:4");
+			le.ts1("G06", "a {\n" + lines + "\tc@ \"2\"\n" + lines + "\t9 \"3\"\n" + lines + "\td }", "2002:3 4003:2 6004:4");
+		}
+
+		// test source offsets
+		SDAParser locator = new SDAParser();
+		locator.setSourceOffsets(true);
+		Function<SDAParser, Function<String, String>> offsets = psr -> str -> {
+			try {
+				StringBuilder sb = new StringBuilder();
+				Deque<DataNode> nodes = new ArrayDeque<>(); nodes.push(psr.parse(str));
+				while (! nodes.isEmpty()) {
+					DataNode n = nodes.pop();
+					sb.append(n.getName()).append(n.getSourceOffset()).append(' ');
+					List<DataNode> children = n.nodes();
+					for (int k = children.size() - 1; k >= 0; k--) nodes.push(children.get(k));
+				}
+				return sb.toString().trim();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		};
+		Test so = new Test(offsets.apply(locator));
+		so.ts1("K01", "a {\n\tb \"1\"\n\tc { d { } }\n}", "a1 b6 c13 d17");
+		DataNode last = locator.parse("a {\r\n" + lines + "\tc { }\n}").get("c"); // after discarding the buffer
+		new Test(str -> str).ts1("K02", last.getName() + last.getSourceOffset(), "c14007");
+		Test sn = new Test(offsets.apply(parser));
+		sn.ts1("K03", "a {\n\tb \"1\"\n\tc { d { } }\n}", "a0 b0 c0 d0");
+		DataNode located = new DataNode("a");
+		located.setSourceOffset(42);
+		new Test(str -> str).ts1("K04", located.getSourceOffset() + "", "42");
+		located.setSourceOffset(-5);
+		new Test(str -> str).ts1("K05", located.getSourceOffset() + "", "0");
+
+		// test projection
+		SDAParser projector = new SDAParser();
+		projector.setProjection(Arrays.asList("/a/b/c", "/a/d"));
+		Test j = new Test(str -> {
+			try {
+				return projector.parse(str).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		j.ts1("J01", "a \"1\" { b \"2\" { c \"3\" { x \"}\" } e \"4\" } d { f \"5\" } g { d \"6\" } }", 
+			"a \"1\" { b \"2\" { c \"3\" { x \"}\" } } d { f \"5\" } }");
+		j.ts1("J02", "x { a { b \"1\" } }", "x { }");
+		j.ts1("J03", "a { e { f \"\\\"{\" } d \"1\" }", "a { d \"1\" }");
+		j.ts1("J04", "a { e { f \"1\" }", "error at position 15: unexpected end of input");
+		
+		// test batch parsing
+		Path broken = Files.createTempDirectory("sda").resolve("broken.sda");
+		Files.write(broken, "a { b \"1\" c }".getBytes());
+		broken.toFile().deleteOnExit(); broken.getParent().toFile().deleteOnExit();
+		Test b = new Test(str -> {
+			List<Path> paths = new ArrayList<>();
+			for (String name : str.split(" ")) {
+				URL url = TestSDAParser.class.getResource("/" + name);
+				paths.add(name.equals("broken.sda") ? broken 
+					: url == null ? Paths.get(name) : Paths.get(url.getFile()));
+			}
+			try {
+				Results<DataNode> results = parser.parseAll(paths, ForkJoinPool.commonPool());
+				return results.stream().map(res -> res.isOK() ? res.getValue().getName() 
+					: res.getMessage().replaceAll("\\S*/", "")).collect(Collectors.joining(" | "));
+			} catch (InterruptedException e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		b.ts1("B01", "addressbook.sda", "addressbook");
+		b.ts1("B02", "addressbook.sda broken.sda addressbook.sda", 
+			"addressbook | error parsing broken.sda: unexpected character '}' | addressbook");
+		b.ts1("B03", "nosuchfile.sda addressbook.sda", "error reading from nosuchfile.sda: nosuchfile.sda | addressbook");
+		
+		// test compressed files, which are detected by content rather than by name
+		Path dir = broken.getParent();
+		Test z = new Test(str -> {
+			String[] names = str.split(" "); // written as the first, read as the last
+			File file = dir.resolve(names[0]).toFile(), read = dir.resolve(names[names.length-1]).toFile();
+			try {
+				SDA.format(file, SDA.parse("a { b \"1\" }"));
+				if (! file.equals(read)) file.renameTo(read);
+				return SDA.parse(read).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage().replaceAll("\\S*/", "");
+			} finally {
+				read.delete();
+			}
+		});
+		z.ts1("Z01", "book.sda.gz", "a { b \"1\" }");
+		z.ts1("Z02", "book.sda.zz", "a { b \"1\" }");
+		z.ts1("Z03", "book.deflate book.sda", "a { b \"1\" }");
+		z.ts1("Z04", "book.sda.gz book.sda", "a { b \"1\" }");
+		Path gz = dir.resolve("broken.sda.gz");
+		try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(gz))) {
+			os.write(Files.readAllBytes(broken));
+		}
+		Test zf = new Test(str -> {
+			try {
+				return SDA.parse(dir.resolve(str).toFile()).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage().replaceAll("\\S*/", "");
+			}
+		});
+		zf.ts1("Z05", "broken.sda.gz", "error parsing broken.sda.gz: unexpected character '}'");
+		gz.toFile().deleteOnExit();
+		Path gzutf = dir.resolve("utf.sda.gz"); // characters that cross the decompressed blocks
+		String utf = "a \"" + new String(new char[10000]).replace("\0", "\u00E9\u20AC\uD83D\uDE00") + "\"";
+		try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(gzutf))) {
+			os.write(utf.getBytes(StandardCharsets.UTF_8));
+		}
+		gzutf.toFile().deleteOnExit();
+		new Test(str -> str).ts1("Z06", parser.parse(gzutf).toString(), utf);
+		
+		// test mapped files, with characters that cross the boundary of a mapped region
+		String mapped = "a \"x\u00E9\u20AC\uD83D\uDE00\" { b \"\u00E9\u00E9\u20AC\u20AC\uD83D\uDE00\uD83D\uDE00\" c { } }";
+		Path map = dir.resolve("mapped.sda"), skip = dir.resolve("skipped.sda");
+		Files.write(map, mapped.getBytes(StandardCharsets.UTF_8));
+		Files.write(skip, ("}}}}" + mapped).getBytes(StandardCharsets.UTF_8)); // to skip the braces
+		map.toFile().deleteOnExit(); skip.toFile().deleteOnExit();
+		Test v = new Test(str -> str);
+		v.ts1("V01", parser.parse(map).toString(), mapped);
+		try (FileChannel channel = FileChannel.open(skip)) {
+			channel.position(4); // starting at the current position
+			v.ts1("V02", parser.parse(channel).toString(), mapped);
+		}
+		Constructor<?> mapper = Class.forName("be.baur.sda.io.UTF8Reader").getDeclaredConstructor(FileChannel.class, long.class);
+		mapper.setAccessible(true); // to map small regions
+		StringBuilder regions = new StringBuilder();
+		for (int size = 4; size <= 16; size++) try (FileChannel channel = FileChannel.open(skip)) {
+			channel.position(4);
+			if (! parser.parse((Reader) mapper.newInstance(channel, size)).toString().equals(mapped)) 
+				regions.append(size).append(' ');
+		}
+		v.ts1("V03", regions.toString(), ""); // no region sizes that fail
+		Path fifo = dir.resolve("mapped.fifo"); // a named pipe, if the platform has them
+		boolean pipe;
+		try {
+			pipe = new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() == 0;
+		} catch (IOException e) { // no mkfifo
+			pipe = false;
+		}
+		if (pipe) {
+			fifo.toFile().deleteOnExit();
+			Thread writer = new Thread(() -> {
+				try (OutputStream os = Files.newOutputStream(fifo)) {
+					os.write(mapped.getBytes(StandardCharsets.UTF_8));
+				} catch (IOException e) { // the reader gave up
+				}
+			});
+			writer.start();
+			new Test(str -> {
+				try {
+					return parser.parse(fifo).toString();
+				} catch (Exception e) {
+					return e.getLocalizedMessage();
+				}
+			}).ts1("V04", "", mapped);
+			writer.join();
+		}
+
+		// test in-memory input, which must give the same results as a reader
+		String[] kinds = { "string", "builder", "chars", "bytes", "buffer", "stream" };
+		Function<String, Function<String, String>> mem = kind -> str -> {
+			byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+			try {
+				switch (kind) {
+				case "string": return parser.parse(str).toString();
+				case "builder": return parser.parse(new StringBuilder(str)).toString();
+				case "chars": return parser.parse(str.toCharArray()).toString();
+				case "bytes": return parser.parse(bytes).toString();
+				case "buffer": return parser.parse(ByteBuffer.wrap(bytes)).toString();
+				default: return parser.parse(new ByteArrayInputStream(bytes)).toString();
+				}
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		};
+		for (String kind : kinds) {
+			Test o = new Test(mem.apply(kind));
+			o.ts1("O01", "a \"\u00E9\u20AC\uD83D\uDE00\" { b { } }", null);
+			o.ts1("O02", "", "error at position 0: unexpected end of input");
+			o.ts1("O03", "a { b \"1\" c }", "error at position 13: unexpected character '}'");
+		}
+		
+		// test performance
+		
+		UnitTestPerformance<String> perf = new UnitTestPerformance<String>(str -> {
+			try {
+				parser.parse(str);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		
+		perf.run("\nP01", samplesda, 20000, 31);
+		
+		StringBuilder sb = new StringBuilder("addressbook {\n");
+		for (int i = 1; i <= 2000; i++) 
+			sb.append("\tcontact \"" + i + "\" {\n\t\tfirstname \"Alice\"\n")
+			  .append("\t\tnote \"The \\\\ is called a \\\"backslash\\\" in English.\"\n\t}\n");
+		perf.run("\nP02", sb.append("}").toString(), 50, 21); // about 200 KB
+		
+		// a message of about 1 KB, from a string and from bytes, with and without a reader
+		String contacts = samplesda.substring(samplesda.indexOf('\n') + 1, samplesda.lastIndexOf('}'));
+		String message = "addressbook {\r\n" + contacts + contacts + contacts + contacts + "}";
+		perf.run("\nP03", message, 100000, 11); // parse(String)
+		UnitTestPerformance<String> perfReader = new UnitTestPerformance<String>(str -> {
+			try {
+				parser.parse(new StringReader(str));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		perfReader.run("\nP04", message, 100000, 11);
+		
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		UnitTestPerformance<byte[]> perfBytes = new UnitTestPerformance<byte[]>(bs -> {
+			try {
+				parser.parse(bs);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		perfBytes.run("\nP05", bytes, 100000, 11);
+		UnitTestPerformance<byte[]> perfStream = new UnitTestPerformance<byte[]>(bs -> {
+			try {
+				parser.parse(new InputStreamReader(new ByteArrayInputStream(bs), StandardCharsets.UTF_8));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		perfStream.run("\nP06", bytes, 100000, 11);
+	}
+
+
+	/** Tests valid and invalid SDA, shared with other parsers that must give identical results. */
+	static void corpus(Test s, Test f) {
+
 		// test valid SDA
 		s.ts1("S01", "empty\"\"", "empty \"\"");
 		s.ts1("S02", "  empty  \"\"  ", "empty \"\"");
@@ -72,18 +539,6 @@ public final class TestSDAParser {
 		f.ts1("F21", "a{} b{}", "5: excess input after root node");
 		f.ts1("F22", "a{ b{} } }", "10: excess input after root node");
 		f.ts1("F23", "a \"b\" c \"d\"", "7: excess input after root node");
-		
-		// test performance
-		
-		UnitTestPerformance<String> perf = new UnitTestPerformance<String>(str -> {
-			try {
-				parser.parse(str);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		});
-		
-		perf.run("\nP01", samplesda, 20000, 31);
 	}
 
 }
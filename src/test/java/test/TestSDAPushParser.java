@@ -0,0 +1,58 @@
+package test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import be.baur.sda.io.SDAHandler;
+import be.baur.sda.io.SDAPushParser;
+
+public final class TestSDAPushParser {
+
+	public static void main(String[] args) throws Exception {
+
+		// feeds the input one character (or byte) at a time, and records events
+		Function<Boolean, Function<String, String>> fun = bytes -> str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				SDAPushParser parser = new SDAPushParser(new SDAHandler() {
+					public void startNode(String name, String value) { 
+						sb.append("<" + name + (value == null ? "" : "=" + value)); 
+					}
+					public void endNode(String name) { sb.append(name + ">"); }
+				});
+				if (bytes) {
+					for (byte b : str.getBytes(StandardCharsets.UTF_8)) 
+						parser.feed(ByteBuffer.wrap(new byte[] { b }));
+				}
+				else for (char c : str.toCharArray()) 
+					parser.feed(new char[] { c }, 0, 1);
+				sb.append(parser.needsInput() ? "?" : "");
+				parser.end(); return sb.toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		};
+
+		Test s = new Test(fun.apply(false));
+		Test b = new Test(fun.apply(true));
+		Test f = new Test(fun.apply(false), "error at position ");
+
+		// test valid SDA
+		s.ts1("S01", "empty\"\"", "?<empty=empty>");
+		s.ts1("S02", "  empty  {  }  ", "<emptyempty>");
+		s.ts1("S03", "a\"1\"{b{}c\"2\"}", "<a=1<bb><c=2c>a>");
+		s.ts1("S04", "a{b{c{d\"\\\"\"}}}", "<a<b<c<d=\"d>c>b>a>");
+		b.ts1("S05", "a{b\"\u00E9\u20AC\\\\\"}", "<a<b=\u00E9\u20AC\\b>a>");
+		
+		// test invalid SDA
+		f.ts1("F01", "", "0: unexpected end of input");
+		f.ts1("F02", "b@d", "2: unexpected character '@'");
+		f.ts1("F03", "_{", "2: invalid node name (_)");
+		f.ts1("F04", "a{ b{}", "6: unexpected end of input");
+		f.ts1("F05", "a{} b{}", "5: excess input after root node");
+		f.ts1("F06", "a \"b\" c \"d\"", "7: excess input after root node");
+		f.ts1("F07", "a \"b", "4: unexpected end of input");
+	}
+
+}
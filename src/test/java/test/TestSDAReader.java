@@ -0,0 +1,48 @@
+package test;
+
+import java.io.StringReader;
+import java.util.function.Function;
+
+import be.baur.sda.io.SDAReader;
+
+public final class TestSDAReader {
+
+	public static void main(String[] args) throws Exception {
+
+		Function<String, String> strfun = str -> {
+			StringBuilder sb = new StringBuilder();
+			try {
+				SDAReader reader = new SDAReader(new StringReader(str));
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case START_NODE: sb.append("<" + reader.getName() + reader.getDepth() + (reader.isLeaf() ? "" : "{")); break;
+					case VALUE: sb.append("=" + reader.getValue()); break;
+					case END_NODE: sb.append(reader.isLeaf() ? "" : "}").append(reader.getName() + reader.getDepth() + ">"); break;
+					case EOF: sb.append("."); break;
+					}
+				}
+				return sb.toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		};
+
+		Test s = new Test(strfun);
+		Test f = new Test(strfun, "error at position ");
+
+		// test valid SDA
+		s.ts1("S01", "empty\"\"", "<empty1=empty1>.");
+		s.ts1("S02", "  empty  {  }  ", "<empty1{}empty1>.");
+		s.ts1("S03", "a\"1\"{b{}c\"2\"}", "<a1{=1<b2{}b2><c2=2c2>}a1>.");
+		s.ts1("S04", "a{b{c{d\"\\\"\"}}}", "<a1{<b2{<c3{<d4=\"d4>}c3>}b2>}a1>.");
+
+		// test invalid SDA
+		f.ts1("F01", "", "0: unexpected end of input");
+		f.ts1("F02", "b@d", "2: unexpected character '@'");
+		f.ts1("F03", "_{", "2: invalid node name (_)");
+		f.ts1("F04", "a{ b{}", "6: unexpected end of input");
+		f.ts1("F05", "a{} b{}", "5: excess input after root node");
+		f.ts1("F06", "a \"b\" c \"d\"", "7: excess input after root node");
+	}
+
+}
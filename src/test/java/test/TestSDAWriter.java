@@ -0,0 +1,94 @@
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.SDA;
+import be.baur.sda.io.SDAFormatter;
+import be.baur.sda.io.SDAWriter;
+
+public final class TestSDAWriter {
+
+	private static SDAFormatter formatter = new SDAFormatter();
+
+	// writes a data node and its children (recursively)
+	private static void write(SDAWriter writer, DataNode node) throws IOException {
+		writer.startNode(node.getName());
+		if (! node.getValue().isEmpty()) writer.value(node.getValue());
+		if (! node.isLeaf()) writer.children();
+		for (DataNode child : node.<DataNode>nodes()) write(writer, child);
+		writer.endNode();
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		// the output must be the same as that of the formatter
+		Test s = new Test(str -> {
+			try {
+				DataNode node = SDA.parse(str);
+				StringWriter sw = new StringWriter();
+				try (SDAWriter writer = new SDAWriter(sw)) { write(writer, node); }
+				return sw.toString().equals(formatter.format(node)) ? "same" : sw.toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		s.ts1("S01", "empty \"\"", "same");
+		s.ts1("S02", "empty { }", "same");
+		s.ts1("S03", "node\"1\"{node2{empty1\"\"empty2{}empty\"3\"{}}}", "same");
+		s.ts1("S04", "example \"The \\\\ is called a \\\"backslash\\\" in English.\"", "same");
+
+		String filename = TestSDAWriter.class.getResource("/addressbook.sda").getFile();
+		DataNode book = SDA.parse(new File(filename));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (SDAWriter writer = new SDAWriter(os)) { write(writer, book); }
+		Test t = new Test(str -> str);
+		t.ts1("S05", new String(os.toByteArray(), StandardCharsets.UTF_8), formatter.format(book));
+
+		StringWriter sw = new StringWriter();
+		SDAWriter writer = new SDAWriter(sw, 2);
+		writer.startNode("a"); writer.value("1");
+		writer.startNode("b"); writer.endNode();
+		writer.startNode("c"); writer.children(); writer.endNode();
+		writer.endNode();
+		t.ts1("S06", sw.toString(), "a \"1\" {\n  b \"\"\n  c { }\n}\n");
+
+		// deep nesting, beyond the indentation that is cached
+		sw = new StringWriter(); writer = new SDAWriter(sw);
+		StringBuilder sb = new StringBuilder(), tabs = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			writer.startNode("a"); sb.append(tabs).append("a {\n"); tabs.append('\t');
+		}
+		writer.startNode("b"); sb.append(tabs).append("b \"\"\n");
+		for (int i = 0; i <= 5000; i++) writer.endNode();
+		for (int i = 0; i < 5000; i++) {
+			tabs.setLength(tabs.length() - 1); sb.append(tabs).append("}\n");
+		}
+		t.ts1("S07", sw.toString(), sb.toString());
+
+		// invalid use of the writer
+		Test f = new Test(str -> {
+			try (SDAWriter w = new SDAWriter(new StringWriter())) {
+				for (String op : str.split(" ")) {
+					if (op.equals("end")) w.endNode();
+					else if (op.startsWith("=")) w.value(op.substring(1));
+					else w.startNode(op);
+				}
+				return "ok";
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		f.ts1("F01", "a end", "ok");
+		f.ts1("F02", "2a", "invalid node name (2a)");
+		f.ts1("F03", "a end end", "no current node");
+		f.ts1("F04", "a end b", "root node has ended");
+		f.ts1("F05", "a b end =1", "value must precede child nodes");
+		f.ts1("F06", "a =1 =2", "value has been set already");
+		f.ts1("F07", "a b", "2 node(s) not ended");
+	}
+}
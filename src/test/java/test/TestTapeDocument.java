@@ -0,0 +1,72 @@
+package test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import be.baur.sda.DataNode;
+import be.baur.sda.Node;
+import be.baur.sda.SDA;
+import be.baur.sda.io.SDAParser;
+import be.baur.sda.io.TapeDocument;
+
+public final class TestTapeDocument {
+
+	public static void main(String[] args) throws Exception {
+
+		SDAParser parser = new SDAParser();
+		Test t = new Test(s -> {
+			return s;
+		});
+
+		String filename = TestTapeDocument.class.getResource("/addressbook.sda").getFile();
+		TapeDocument tape;
+		try (Reader input = new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8)) {
+			tape = parser.tape(input);
+		}
+		TapeDocument.Cursor book = tape.root();
+
+		List<TapeDocument.Cursor> contacts = book.getAll("contact");
+		List<Node> numbers = book.find(n -> n.getName().equals("phonenumber"));
+
+		// navigation, as in TestNodeList
+		t.ts1("S01", book.path(), "/addressbook");
+		t.ts1("S02", contacts.get(0).getValue(), "1");
+		t.ts1("S03", contacts.get(0).path(), "/addressbook/contact[1]");
+		t.ts1("S04", contacts.get(1).getValue(), "2");
+		t.ts1("S05", contacts.get(1).path(), "/addressbook/contact[2]");
+		t.ts1("S06", contacts.get(1).get("firstname").path(), "/addressbook/contact[2]/firstname");
+		t.ts1("S07", numbers.get(0).path(), "/addressbook/contact[1]/phonenumber[1]");
+		t.ts1("S08", numbers.get(3).path(), "/addressbook/contact[2]/phonenumber[2]");
+		t.ts1("S09", numbers.get(3).getParent().equals(contacts.get(1)) + "", "true");
+		t.ts1("S10", book.nodes().size() + " " + book.get("nosuchnode"), contacts.size() + " null");
+
+		// the same content as a tree of data nodes
+		DataNode root = SDA.parse(new File(filename));
+		t.ts1("S11", tape.toString(), root.toString());
+		t.ts1("S12", book.toDataNode().toString(), root.toString());
+		t.ts1("S13", TapeDocument.of(root).toString(), root.toString());
+		t.ts1("S14", tape.size() + "", 1 + root.find(n -> true).size() + "");
+
+		Test s = new Test(str -> {
+			try {
+				return parser.tape(new StringReader(str)).toString();
+			} catch (Exception e) {
+				return e.getLocalizedMessage();
+			}
+		});
+		s.ts1("S15", "a \"1\"", null);
+		s.ts1("S16", "a { b \"\" { } c \"\\\"\" d { e { } } }", "a { b { } c \"\\\"\" d { e { } } }");
+		s.ts1("S17", "a { b \"1\" c }", "error at position 13: unexpected character '}'");
+
+		try {
+			book.add(new DataNode("node")); t.ts1("S18", "added", "read-only");
+		} catch (UnsupportedOperationException e) {
+			t.ts1("S18", "read-only", "read-only");
+		}
+	}
+}